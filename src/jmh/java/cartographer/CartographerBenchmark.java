@@ -0,0 +1,80 @@
+package cartographer;
+
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+//handleMethod needs the deobfuscator, history and class mappings that a run sets up, so it is measured through a whole simulated run of a synthetic jar.
+//With matches every method goes through handleMatchedMethod, without them through handleNewMethod.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class CartographerBenchmark {
+
+	@Param("1000")
+	public int classes;
+
+	@Param("20")
+	public int methods;
+
+	@Param("5")
+	public int fields;
+
+	@Param({"false", "true"})
+	public boolean matched;
+
+	@Param("1")
+	public int threads;
+
+	private File dir;
+	private File jarFile;
+
+	@Setup
+	public void setup() throws IOException {
+		dir = Files.createTempDirectory("cartographer").toFile();
+		jarFile = new File(dir, "synthetic.jar");
+		SyntheticInputs.writeJar(jarFile, classes, methods, fields, 8);
+		if (matched) {
+			//Map the jar once so there are old mappings for the matches to point at
+			newRun(new File(dir, "old")).start();
+			SyntheticInputs.writeMatches(new File(dir, "synthetic.match"), classes, methods, fields);
+		}
+	}
+
+	private Cartographer newRun(File output) {
+		output.mkdirs();
+		return new Cartographer()
+			.setNewJar(jarFile)
+			.setOutputMappingsFile(new File(output, "mappings"))
+			.setHistoryFile(new File(output, "history.txt"))
+			.setNewConstructorFile(new File(output, "constructors.json"))
+			.setThreads(threads);
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		FileUtils.deleteDirectory(dir);
+	}
+
+	@Benchmark
+	public Cartographer map() throws IOException {
+		Cartographer cartographer = newRun(new File(dir, "new"));
+		if (matched) {
+			File old = new File(dir, "old");
+			cartographer.setOldJar(jarFile)
+				.setOldMappingsFile(new File(old, "mappings"))
+				.setOldConstructorFile(new File(old, "constructors.json"))
+				.setMatchesFile(new File(dir, "synthetic.match"));
+		}
+		cartographer.simulate().start();
+		return cartographer;
+	}
+
+}
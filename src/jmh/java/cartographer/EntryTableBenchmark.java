@@ -0,0 +1,79 @@
+package cartographer;
+
+import cuchaz.enigma.analysis.ParsedJar;
+import cuchaz.enigma.mapping.MethodDescriptor;
+import cuchaz.enigma.mapping.entry.AccessFlags;
+import cuchaz.enigma.mapping.entry.ClassEntry;
+import cuchaz.enigma.mapping.entry.MethodDefEntry;
+import org.objectweb.asm.Opcodes;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.JarFile;
+
+//The method sort from the start of a run, with a comparator like it used to be and with the entry table
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class EntryTableBenchmark {
+
+	@Param("5000")
+	public int classes;
+
+	@Param("20")
+	public int methods;
+
+	private File jarFile;
+	private JarFile jar;
+	private ParsedJar parsedJar;
+	private List<ClassEntry> classEntries;
+	private List<MethodDefEntry> methodEntries;
+
+	@Setup
+	public void setup() throws IOException {
+		jarFile = Files.createTempFile("cartographer", ".jar").toFile();
+		SyntheticInputs.writeJar(jarFile, classes, 0, 0, 1);
+		jar = new JarFile(jarFile);
+		parsedJar = new ParsedJar(jar);
+		classEntries = new ArrayList<>();
+		methodEntries = new ArrayList<>();
+		for (int i = 0; i < classes; i++) {
+			ClassEntry classEntry = new ClassEntry(SyntheticInputs.obfName(i));
+			classEntries.add(classEntry);
+			for (int j = 0; j < methods; j++) {
+				methodEntries.add(new MethodDefEntry(classEntry, SyntheticInputs.obfName(j), new MethodDescriptor(SyntheticInputs.methodDesc(j)), null, new AccessFlags(Opcodes.ACC_PUBLIC)));
+			}
+		}
+		//The jar index is a hash set, so the entries do not come in any order
+		Collections.shuffle(classEntries, new Random(0));
+		Collections.shuffle(methodEntries, new Random(0));
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		jar.close();
+		jarFile.delete();
+	}
+
+	@Benchmark
+	public List<MethodDefEntry> comparator() {
+		List<MethodDefEntry> sorted = new ArrayList<>(methodEntries);
+		sorted.sort(Comparator.<MethodDefEntry>comparingInt(o -> Util.getObfIndex(o.getOwnerClassEntry().getName()))
+			.thenComparingInt(o -> Util.getObfIndex(o.getName())));
+		return sorted;
+	}
+
+	@Benchmark
+	public int[] table() {
+		EntryTable<ClassEntry> classTable = EntryTable.classes(classEntries, parsedJar);
+		return EntryTable.members(methodEntries, classTable, entry -> entry.getAccess().getFlags()).sorted();
+	}
+
+}
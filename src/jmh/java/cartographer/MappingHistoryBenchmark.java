@@ -0,0 +1,41 @@
+package cartographer;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class MappingHistoryBenchmark {
+
+	//The number of methods already in the history
+	@Param("100000")
+	public int historyLength;
+
+	private MappingHistory history;
+	private String[] methodNames;
+	private int next;
+
+	//A fresh history each iteration, so the args list does not keep growing over the whole run
+	@Setup(Level.Iteration)
+	public void setup() {
+		history = SyntheticInputs.createHistory(historyLength / 4, historyLength, historyLength / 2);
+		methodNames = new String[historyLength];
+		for (int i = 0; i < historyLength; i++) {
+			methodNames[i] = history.methods.get(i).name;
+		}
+		next = 0;
+	}
+
+	@Benchmark
+	public String generateArgName() {
+		String methodName = methodNames[next];
+		next = (next + 1) % methodNames.length;
+		return history.generateArgName(methodName);
+	}
+
+}
@@ -0,0 +1,52 @@
+package cartographer;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class MatchesBenchmark {
+
+	@Param("5000")
+	public int classes;
+
+	@Param("20")
+	public int methods;
+
+	@Param("5")
+	public int fields;
+
+	private File matchesFile;
+	private Matches matches;
+
+	@Setup
+	public void setup() throws IOException {
+		matchesFile = Files.createTempFile("cartographer", ".match").toFile();
+		SyntheticInputs.writeMatches(matchesFile, classes, methods, fields);
+		matches = new Matches().read(matchesFile);
+	}
+
+	@TearDown
+	public void tearDown() {
+		matchesFile.delete();
+	}
+
+	@Benchmark
+	public Matches read() throws IOException {
+		return new Matches().read(matchesFile);
+	}
+
+	@Benchmark
+	public Matches compose() {
+		return matches.compose(matches);
+	}
+
+}
@@ -0,0 +1,128 @@
+package cartographer;
+
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.MethodNode;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+//Generates obfuscated looking jars, matches and histories for the benchmarks, so they can run without any minecraft files
+public class SyntheticInputs {
+
+	private static final String[] TYPES = {"I", "J", "Z", "D", "Ljava/lang/String;", "Ljava/util/List;"};
+
+	//a, b, ... z, aa, ab, the same scheme the obfuscator uses
+	public static String obfName(int index) {
+		StringBuilder builder = new StringBuilder();
+		index++;
+		while (index > 0) {
+			index--;
+			builder.insert(0, (char) ('a' + index % 26));
+			index /= 26;
+		}
+		return builder.toString();
+	}
+
+	public static String methodDesc(int index) {
+		StringBuilder builder = new StringBuilder("(");
+		for (int i = 0; i < index % 4; i++) {
+			builder.append(TYPES[(index + i) % TYPES.length]);
+		}
+		return builder.append(")").append(index % 3 == 0 ? "V" : TYPES[index % TYPES.length]).toString();
+	}
+
+	public static String fieldDesc(int index) {
+		return TYPES[index % TYPES.length];
+	}
+
+	//Every class extends the one before it in groups of depth, so there is some hierarchy to walk
+	public static ClassNode createClass(int index, int methods, int fields, int depth) {
+		ClassNode classNode = new ClassNode();
+		String superName = index % depth == 0 ? "java/lang/Object" : obfName(index - 1);
+		classNode.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC | Opcodes.ACC_SUPER, obfName(index), null, superName, null);
+		MethodVisitor constructor = classNode.visitMethod(Opcodes.ACC_PUBLIC, "<init>", "()V", null, null);
+		constructor.visitCode();
+		constructor.visitVarInsn(Opcodes.ALOAD, 0);
+		constructor.visitMethodInsn(Opcodes.INVOKESPECIAL, superName, "<init>", "()V", false);
+		constructor.visitInsn(Opcodes.RETURN);
+		constructor.visitMaxs(1, 1);
+		constructor.visitEnd();
+		for (int i = 0; i < methods; i++) {
+			//Offset by the class so the names do not override the super class methods
+			String desc = methodDesc(i);
+			MethodNode methodNode = (MethodNode) classNode.visitMethod(Opcodes.ACC_PUBLIC, obfName(index * methods + i), desc, null, null);
+			methodNode.visitCode();
+			methodNode.visitInsn(Opcodes.ACONST_NULL);
+			methodNode.visitInsn(Opcodes.ATHROW);
+			methodNode.visitMaxs(1, 1 + desc.length());
+			methodNode.visitEnd();
+		}
+		for (int i = 0; i < fields; i++) {
+			classNode.visitField(Opcodes.ACC_PRIVATE, obfName(i), fieldDesc(i), null, null).visitEnd();
+		}
+		classNode.visitEnd();
+		return classNode;
+	}
+
+	public static void writeJar(File file, int classes, int methods, int fields, int depth) throws IOException {
+		try (ZipOutputStream zipOutputStream = new ZipOutputStream(new BufferedOutputStream(Files.newOutputStream(file.toPath())))) {
+			for (int i = 0; i < classes; i++) {
+				ClassNode classNode = createClass(i, methods, fields, depth);
+				ClassWriter writer = new ClassWriter(0);
+				classNode.accept(writer);
+				zipOutputStream.putNextEntry(new ZipEntry(classNode.name + ".class"));
+				zipOutputStream.write(writer.toByteArray());
+				zipOutputStream.closeEntry();
+			}
+		}
+	}
+
+	//Matches every class, method and arg to itself, in the format Matches reads
+	public static void writeMatches(File file, int classes, int methods, int fields) throws IOException {
+		try (Writer writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+			writer.write("Matches saved by SyntheticInputs\n");
+			for (int c = 0; c < classes; c++) {
+				String name = obfName(c);
+				writer.write("c\tL" + name + ";\tL" + name + ";\n");
+				for (int m = 0; m < methods; m++) {
+					String method = obfName(c * methods + m) + methodDesc(m);
+					writer.write("\tm\t" + method + "\t" + method + "\n");
+					for (int arg = 0; arg < m % 4; arg++) {
+						writer.write("\t\tma\t" + arg + "\t" + arg + "\n");
+					}
+				}
+				for (int f = 0; f < fields; f++) {
+					String field = obfName(f) + ";;" + fieldDesc(f);
+					writer.write("\tf\t" + field + "\t" + field + "\n");
+				}
+			}
+		}
+	}
+
+	public static MappingHistory createHistory(int classes, int methods, int fields) {
+		MappingHistory history = MappingHistory.newMappingsHistory();
+		for (int i = 0; i < classes; i++) {
+			history.generateClassName();
+		}
+		for (int i = 0; i < methods; i++) {
+			String methodName = history.generateMethodName(methodDesc(i));
+			for (int arg = 0; arg < i % 4; arg++) {
+				history.generateArgName(methodName);
+			}
+		}
+		for (int i = 0; i < fields; i++) {
+			history.generateFieldName(fieldDesc(i));
+		}
+		return history;
+	}
+
+}
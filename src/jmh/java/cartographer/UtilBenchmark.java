@@ -0,0 +1,74 @@
+package cartographer;
+
+import cuchaz.enigma.analysis.ParsedJar;
+import org.objectweb.asm.tree.ClassNode;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.JarFile;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class UtilBenchmark {
+
+	@Param("5000")
+	public int classes;
+
+	@Param("20")
+	public int methods;
+
+	//How many classes each class has above it
+	@Param("8")
+	public int depth;
+
+	private String[] names;
+	private File jarFile;
+	private JarFile jar;
+	private ParsedJar parsedJar;
+	private ClassNode[] classNodes;
+
+	@Setup
+	public void setup() throws IOException {
+		names = new String[classes * methods];
+		for (int i = 0; i < names.length; i++) {
+			names[i] = SyntheticInputs.obfName(i);
+		}
+		jarFile = Files.createTempFile("cartographer", ".jar").toFile();
+		SyntheticInputs.writeJar(jarFile, classes, methods, 0, depth);
+		jar = new JarFile(jarFile);
+		parsedJar = new ParsedJar(jar);
+		classNodes = new ClassNode[classes];
+		for (int i = 0; i < classes; i++) {
+			classNodes[i] = parsedJar.getClassNode(SyntheticInputs.obfName(i));
+		}
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		jar.close();
+		jarFile.delete();
+	}
+
+	@Benchmark
+	public void getObfIndex(Blackhole blackhole) {
+		for (String name : names) {
+			blackhole.consume(Util.getObfIndex(name));
+		}
+	}
+
+	@Benchmark
+	public void classData(Blackhole blackhole) {
+		for (ClassNode classNode : classNodes) {
+			blackhole.consume(new Util.ClassData(classNode, parsedJar, null));
+		}
+	}
+
+}
@@ -0,0 +1,79 @@
+package cartographer;
+
+import com.google.common.hash.Hashing;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+//Stores generated files by a hash of everything that went into making them, so a file is never reused once its inputs change.
+//Files are written to a temp file and renamed into place, and a lock file stops two runs on the same machine from doing the same work at once.
+public class ArtifactCache {
+
+	//File locks are held by the whole jvm, so threads in the same run also have to wait on each other
+	private static final Map<String, Object> LOCKS = new ConcurrentHashMap<>();
+
+	private final File dir;
+
+	public ArtifactCache(File dir) {
+		this.dir = dir;
+	}
+
+	public interface Generator {
+		void generate(File output) throws IOException;
+	}
+
+	public static String key(String... inputs) {
+		return Hashing.sha256().hashString(String.join("\n", inputs), StandardCharsets.UTF_8).toString();
+	}
+
+	public File get(String key, String extension, Generator generator) throws IOException {
+		File output = new File(dir, key + extension);
+		if (output.exists()) {
+			return output;
+		}
+		Files.createDirectories(dir.toPath());
+		return withLock(new File(dir, key + ".lock"), () -> {
+			//Another run may have made it while we were waiting for the lock
+			if (!output.exists()) {
+				writeAtomically(output, generator);
+			}
+			return output;
+		});
+	}
+
+	public interface Task<T> {
+		T run() throws IOException;
+	}
+
+	//Runs the task while holding the lock file, so no other thread or run on the machine holding the same lock runs at the same time
+	public static <T> T withLock(File lockFile, Task<T> task) throws IOException {
+		synchronized (LOCKS.computeIfAbsent(lockFile.getAbsolutePath(), s -> new Object())) {
+			try (FileChannel channel = FileChannel.open(lockFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+			     FileLock lock = channel.lock()) {
+				return task.run();
+			}
+		}
+	}
+
+	//Generates in to a temp file next to the output and renames it into place, so the output is either missing or complete
+	public static void writeAtomically(File output, Generator generator) throws IOException {
+		Path tempFile = Files.createTempFile(output.getAbsoluteFile().getParentFile().toPath(), output.getName(), ".tmp");
+		try {
+			generator.generate(tempFile.toFile());
+			try {
+				Files.move(tempFile, output.toPath(), StandardCopyOption.ATOMIC_MOVE);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(tempFile, output.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			}
+		} finally {
+			Files.deleteIfExists(tempFile);
+		}
+	}
+
+}
@@ -0,0 +1,127 @@
+package cartographer;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+//Writes log lines to a file on a background thread, the queue is bounded so a slow disk blocks the caller rather than filling the heap.
+//If the writer thread stops, because of an io error or an interrupt, the callers fail rather than waiting on a queue nothing takes from.
+public class AsyncLogWriter implements LogSink {
+
+	//Compared by identity, marks the end of the log
+	private static final String END = new String("END");
+
+	private final BlockingQueue<String> queue;
+	private final Writer writer;
+	private final Thread thread;
+	private Predicate<String> filter = line -> true;
+
+	private volatile IOException error;
+	private boolean closed = false;
+
+	public AsyncLogWriter(File file) throws IOException {
+		this(file, 8192);
+	}
+
+	public AsyncLogWriter(File file, int capacity) throws IOException {
+		if (file.getParentFile() != null) {
+			file.getParentFile().mkdirs();
+		}
+		this.queue = new ArrayBlockingQueue<>(capacity);
+		this.writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8);
+		this.thread = new Thread(this::run, "Cartographer log writer");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	//Only lines that match the filter are written, eg line -> line.startsWith("N") for only new entries
+	public AsyncLogWriter setFilter(Predicate<String> filter) {
+		this.filter = filter;
+		return this;
+	}
+
+	@Override
+	public void log(String line) {
+		if (!filter.test(line)) {
+			return;
+		}
+		boolean added;
+		try {
+			added = offer(line);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("Interrupted while logging", e);
+		}
+		if (!added) {
+			throw new RuntimeException("The log writer has stopped", error);
+		}
+	}
+
+	//Waits for space in the queue, returns false when the writer thread is no longer there to make it
+	private boolean offer(String line) throws InterruptedException {
+		while (!queue.offer(line, 100, TimeUnit.MILLISECONDS)) {
+			if (!thread.isAlive()) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private void run() {
+		List<String> batch = new ArrayList<>();
+		try {
+			while (true) {
+				batch.add(queue.take());
+				queue.drainTo(batch);
+				for (String line : batch) {
+					if (line == END) {
+						writer.flush();
+						return;
+					}
+					writer.write(line);
+					writer.write(System.lineSeparator());
+				}
+				batch.clear();
+				//Flush whenever we catch up so the file is useful if the run crashes
+				if (queue.isEmpty()) {
+					writer.flush();
+				}
+			}
+		} catch (IOException e) {
+			error = e;
+		} catch (InterruptedException e) {
+			error = new InterruptedIOException("The log writer was interrupted");
+		}
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		try {
+			if (offer(END)) {
+				thread.join();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while closing the log", e);
+		} finally {
+			writer.close();
+		}
+		if (error != null) {
+			throw error;
+		}
+	}
+
+}
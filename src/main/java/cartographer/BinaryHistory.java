@@ -0,0 +1,432 @@
+package cartographer;
+
+import org.apache.commons.lang3.Validate;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+//Compact binary version of the history file. Layout:
+//magic, version, string table (descriptors and any names that cant be derived), then one section per type.
+//Each section is type, flags, entry count, byte length then the entries as varints. Names such as method_N are derived from the index and are not stored.
+public class BinaryHistory {
+
+	public static final String EXTENSION = ".bin";
+
+	private static final int MAGIC = 0x43485354; //CHST
+	private static final int VERSION = 1;
+
+	//Set when the names in a section could not be derived and are stored in the string table
+	private static final int FLAG_EXPLICIT_NAMES = 1;
+
+	private static final MappingHistory.Type[] SECTION_ORDER = {
+		MappingHistory.Type.CLASS,
+		MappingHistory.Type.METHOD,
+		MappingHistory.Type.FIELD,
+		MappingHistory.Type.ARG
+	};
+
+	public static boolean isBinary(File file) throws IOException {
+		if (!file.exists() || file.length() < 4) {
+			return false;
+		}
+		try (DataInputStream inputStream = new DataInputStream(new FileInputStream(file))) {
+			return inputStream.readInt() == MAGIC;
+		}
+	}
+
+	//Converts between the text and binary formats, the output format is picked from the file extension
+	public static void convert(File input, File output) throws IOException {
+		MappingHistory.readHistory(input).save(output);
+	}
+
+	public static MappingHistory read(File file) throws IOException {
+		//Read in to the heap rather than mapped, a mapping would hold on to the old file once save replaces it and stops the replace on windows.
+		//The entries are still only decoded when they are first needed
+		ByteBuffer buffer;
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			buffer = ByteBuffer.allocate(Math.toIntExact(channel.size()));
+			while (buffer.hasRemaining()) {
+				if (channel.read(buffer) == -1) {
+					throw new EOFException("History file " + file.getName() + " was cut short while reading");
+				}
+			}
+			buffer.flip();
+		}
+		if (buffer.getInt() != MAGIC) {
+			throw new IOException("Not a binary history file: " + file.getName());
+		}
+		int version = readVarInt(buffer);
+		if (version != VERSION) {
+			throw new IOException("Unsupported history version " + version + " in " + file.getName());
+		}
+
+		int stringCount = readVarInt(buffer);
+		StringTable strings = new StringTable(readBlock(buffer), stringCount);
+		Map<MappingHistory.Type, Section<?>> sections = new EnumMap<>(MappingHistory.Type.class);
+		for (int i = 0; i < SECTION_ORDER.length; i++) {
+			MappingHistory.Type type = MappingHistory.Type.values()[buffer.get()];
+			int flags = buffer.get();
+			int count = readVarInt(buffer);
+			sections.put(type, new Section<>(type, flags, count, readBlock(buffer), strings));
+		}
+
+		MappingHistory history = new MappingHistory();
+		history.classes = cast(sections.get(MappingHistory.Type.CLASS));
+		history.methods = cast(sections.get(MappingHistory.Type.METHOD));
+		history.fields = cast(sections.get(MappingHistory.Type.FIELD));
+		history.args = cast(sections.get(MappingHistory.Type.ARG));
+
+		//Count the args straight from the buffer so the section does not need to be decoded
+		Section<?> args = sections.get(MappingHistory.Type.ARG);
+		if ((args.flags & FLAG_EXPLICIT_NAMES) == 0) {
+			ByteBuffer data = args.data.duplicate();
+			for (int i = 0; i < args.baseCount; i++) {
+				history.nextArgIndex(readVarInt(data));
+				readVarInt(data);
+			}
+		} else {
+			history.rebuildArgIndex();
+		}
+		return history;
+	}
+
+	//Replaces the file. Histories read from the old file do not depend on it and can still be used, but saving one of them writes over this one
+	public static void write(MappingHistory history, File file) throws IOException {
+		StringTable strings = findStringTable(history);
+		StringTableWriter tableWriter = new StringTableWriter(strings);
+
+		//Sections are encoded first as they can add new strings to the table
+		List<EncodedSection> encodedSections = new ArrayList<>();
+		for (MappingHistory.Type type : SECTION_ORDER) {
+			List<? extends MappingHistory.NamedEntry> entries = getEntries(history, type);
+			int flags = canDeriveNames(type, entries) ? 0 : FLAG_EXPLICIT_NAMES;
+			EncodedSection encoded = new EncodedSection(type, flags, entries.size());
+
+			Section<?> section = entries instanceof Section ? (Section<?>) entries : null;
+			int start = 0;
+			if (section != null && section.strings == strings && section.flags == flags) {
+				//The old entries have not changed, copy them across as is and only encode the new ones
+				encoded.copied = section.data.duplicate();
+				start = section.baseCount;
+			}
+			for (int i = start; i < entries.size(); i++) {
+				writeEntry(encoded.body, type, flags, entries.get(i), tableWriter);
+			}
+			encodedSections.add(encoded);
+		}
+
+		//Write to a temp file first so a failed write does not leave a broken history
+		File tempFile = new File(file.getAbsoluteFile().getParentFile(), file.getName() + ".tmp");
+		try (OutputStream outputStream = new BufferedOutputStream(new FileOutputStream(tempFile))) {
+			new DataOutputStream(outputStream).writeInt(MAGIC);
+			writeVarInt(outputStream, VERSION);
+			tableWriter.write(outputStream);
+			for (EncodedSection encoded : encodedSections) {
+				encoded.write(outputStream);
+			}
+		}
+		Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+	}
+
+	private static void writeEntry(OutputStream outputStream, MappingHistory.Type type, int flags, MappingHistory.NamedEntry entry, StringTableWriter strings) throws IOException {
+		if ((flags & FLAG_EXPLICIT_NAMES) != 0) {
+			writeVarInt(outputStream, strings.indexOf(entry.name));
+		} else if (type == MappingHistory.Type.ARG) {
+			int[] arg = parseArgName(entry.name);
+			writeVarInt(outputStream, arg[0]);
+			writeVarInt(outputStream, arg[1]);
+		}
+		if (entry instanceof MappingHistory.SignatureEntry) {
+			writeVarInt(outputStream, strings.indexOf(((MappingHistory.SignatureEntry) entry).signature));
+		}
+	}
+
+	private static MappingHistory.NamedEntry readEntry(ByteBuffer buffer, MappingHistory.Type type, int flags, int index, StringTable strings) {
+		String name;
+		if ((flags & FLAG_EXPLICIT_NAMES) != 0) {
+			name = strings.get(readVarInt(buffer));
+		} else if (type == MappingHistory.Type.ARG) {
+			name = "param_" + readVarInt(buffer) + "_" + readVarInt(buffer);
+		} else {
+			name = getPrefix(type) + index;
+		}
+		if (type == MappingHistory.Type.METHOD || type == MappingHistory.Type.FIELD) {
+			return new MappingHistory.SignatureEntry(name, strings.get(readVarInt(buffer)), type);
+		}
+		return new MappingHistory.NamedEntry(name, type);
+	}
+
+	private static boolean canDeriveNames(MappingHistory.Type type, List<? extends MappingHistory.NamedEntry> entries) {
+		if (entries instanceof Section && (((Section<?>) entries).flags & FLAG_EXPLICIT_NAMES) != 0) {
+			return false;
+		}
+		//Only the entries that have not come from a derived section need checking
+		int start = entries instanceof Section ? ((Section<?>) entries).baseCount : 0;
+		for (int i = start; i < entries.size(); i++) {
+			String name = entries.get(i).name;
+			if (type == MappingHistory.Type.ARG) {
+				if (parseArgName(name) == null) {
+					return false;
+				}
+			} else if (!name.equals(getPrefix(type) + i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	//Returns the method and arg index of a param_M_N name, or null if it cant be rebuilt from them
+	private static int[] parseArgName(String name) {
+		if (!name.startsWith("param_")) {
+			return null;
+		}
+		int split = name.indexOf('_', 6);
+		if (split == -1) {
+			return null;
+		}
+		try {
+			int[] arg = new int[] { Integer.parseInt(name.substring(6, split)), Integer.parseInt(name.substring(split + 1)) };
+			return arg[0] >= 0 && arg[1] >= 0 && name.equals("param_" + arg[0] + "_" + arg[1]) ? arg : null;
+		} catch (NumberFormatException e) {
+			return null;
+		}
+	}
+
+	private static String getPrefix(MappingHistory.Type type) {
+		switch (type) {
+			case CLASS:
+				return "class_";
+			case METHOD:
+				return "method_";
+			case FIELD:
+				return "field_";
+			default:
+				throw new IllegalArgumentException("No prefix for " + type);
+		}
+	}
+
+	private static List<? extends MappingHistory.NamedEntry> getEntries(MappingHistory history, MappingHistory.Type type) {
+		switch (type) {
+			case CLASS:
+				return history.classes;
+			case METHOD:
+				return history.methods;
+			case FIELD:
+				return history.fields;
+			case ARG:
+				return history.args;
+			default:
+				throw new IllegalArgumentException("Unknown type " + type);
+		}
+	}
+
+	//All of the sections from a binary file share a string table, that table is kept so the old sections can be copied as is
+	private static StringTable findStringTable(MappingHistory history) {
+		StringTable strings = null;
+		for (MappingHistory.Type type : SECTION_ORDER) {
+			List<? extends MappingHistory.NamedEntry> entries = getEntries(history, type);
+			if (!(entries instanceof Section)) {
+				return null;
+			}
+			StringTable sectionStrings = ((Section<?>) entries).strings;
+			if (strings != null && strings != sectionStrings) {
+				return null;
+			}
+			strings = sectionStrings;
+		}
+		return strings;
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <T extends MappingHistory.NamedEntry> List<T> cast(Section<?> section) {
+		return (List<T>) section;
+	}
+
+	private static ByteBuffer readBlock(ByteBuffer buffer) {
+		int length = readVarInt(buffer);
+		ByteBuffer block = buffer.slice();
+		block.limit(length);
+		buffer.position(buffer.position() + length);
+		return block;
+	}
+
+	static int readVarInt(ByteBuffer buffer) {
+		int value = 0;
+		int shift = 0;
+		byte b;
+		do {
+			b = buffer.get();
+			value |= (b & 0x7F) << shift;
+			shift += 7;
+		} while ((b & 0x80) != 0);
+		return value;
+	}
+
+	static void writeVarInt(OutputStream outputStream, int value) throws IOException {
+		while ((value & ~0x7F) != 0) {
+			outputStream.write((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		outputStream.write(value);
+	}
+
+	private static class EncodedSection {
+
+		final MappingHistory.Type type;
+		final int flags;
+		final int count;
+		//The raw bytes of the unchanged entries from the old file, followed by the newly encoded ones
+		ByteBuffer copied;
+		final ByteArrayOutputStream body = new ByteArrayOutputStream();
+
+		EncodedSection(MappingHistory.Type type, int flags, int count) {
+			this.type = type;
+			this.flags = flags;
+			this.count = count;
+		}
+
+		void write(OutputStream outputStream) throws IOException {
+			outputStream.write(type.ordinal());
+			outputStream.write(flags);
+			writeVarInt(outputStream, count);
+			writeVarInt(outputStream, (copied == null ? 0 : copied.remaining()) + body.size());
+			if (copied != null) {
+				byte[] chunk = new byte[8192];
+				while (copied.hasRemaining()) {
+					int length = Math.min(chunk.length, copied.remaining());
+					copied.get(chunk, 0, length);
+					outputStream.write(chunk, 0, length);
+				}
+			}
+			body.writeTo(outputStream);
+		}
+	}
+
+	//List of history entries backed by a section of the file, the entries are only decoded when they are first needed
+	private static class Section<T extends MappingHistory.NamedEntry> extends AbstractList<T> implements RandomAccess {
+
+		final MappingHistory.Type type;
+		final int flags;
+		final int baseCount;
+		final ByteBuffer data;
+		final StringTable strings;
+
+		private List<T> decoded;
+		final List<T> tail = new ArrayList<>();
+
+		Section(MappingHistory.Type type, int flags, int baseCount, ByteBuffer data, StringTable strings) {
+			this.type = type;
+			this.flags = flags;
+			this.baseCount = baseCount;
+			this.data = data;
+			this.strings = strings;
+		}
+
+		@Override
+		public T get(int index) {
+			if (index >= baseCount) {
+				return tail.get(index - baseCount);
+			}
+			return decode().get(index);
+		}
+
+		@Override
+		public int size() {
+			return baseCount + tail.size();
+		}
+
+		@Override
+		public boolean add(T entry) {
+			modCount++;
+			return tail.add(entry);
+		}
+
+		@SuppressWarnings("unchecked")
+		private synchronized List<T> decode() {
+			if (decoded == null) {
+				List<T> entries = new ArrayList<>(baseCount);
+				ByteBuffer buffer = data.duplicate();
+				for (int i = 0; i < baseCount; i++) {
+					entries.add((T) readEntry(buffer, type, flags, i, strings));
+				}
+				decoded = entries;
+			}
+			return decoded;
+		}
+	}
+
+	private static class StringTable {
+
+		private final ByteBuffer data;
+		private final int count;
+		private String[] strings;
+
+		StringTable(ByteBuffer data, int count) {
+			this.data = data;
+			this.count = count;
+		}
+
+		synchronized String get(int index) {
+			return decode()[index];
+		}
+
+		synchronized String[] decode() {
+			if (strings == null) {
+				String[] decoded = new String[count];
+				ByteBuffer buffer = data.duplicate();
+				for (int i = 0; i < count; i++) {
+					byte[] bytes = new byte[readVarInt(buffer)];
+					buffer.get(bytes);
+					decoded[i] = new String(bytes, StandardCharsets.UTF_8);
+				}
+				strings = decoded;
+			}
+			return strings;
+		}
+	}
+
+	//Keeps the existing string table in the same order so that the indexes in copied sections stay valid
+	private static class StringTableWriter {
+
+		private final Map<String, Integer> indexes = new HashMap<>();
+		private final List<String> strings = new ArrayList<>();
+
+		StringTableWriter(StringTable existing) {
+			if (existing != null) {
+				for (String string : existing.decode()) {
+					indexOf(string);
+				}
+			}
+		}
+
+		int indexOf(String string) {
+			Validate.notNull(string);
+			Integer index = indexes.get(string);
+			if (index == null) {
+				index = strings.size();
+				strings.add(string);
+				indexes.put(string, index);
+			}
+			return index;
+		}
+
+		void write(OutputStream outputStream) throws IOException {
+			ByteArrayOutputStream table = new ByteArrayOutputStream();
+			for (String string : strings) {
+				byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+				writeVarInt(table, bytes.length);
+				table.write(bytes);
+			}
+			writeVarInt(outputStream, strings.size());
+			writeVarInt(outputStream, table.size());
+			table.writeTo(outputStream);
+		}
+	}
+
+}
@@ -1,29 +1,34 @@
 package cartographer;
 
 import cuchaz.enigma.Deobfuscator;
+import cuchaz.enigma.analysis.ParsedJar;
 import cuchaz.enigma.mapping.*;
 import cuchaz.enigma.mapping.entry.ClassEntry;
-import cuchaz.enigma.mapping.entry.Entry;
 import cuchaz.enigma.mapping.entry.FieldDefEntry;
 import cuchaz.enigma.mapping.entry.MethodDefEntry;
 import cuchaz.enigma.throwables.IllegalNameException;
 import cuchaz.enigma.throwables.MappingConflict;
 import cuchaz.enigma.throwables.MappingParseException;
-import net.fabricmc.weave.CommandTinyify;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang3.Validate;
+import org.apache.commons.lang3.tuple.Pair;
 import org.apache.commons.lang3.tuple.Triple;
 import org.objectweb.asm.Opcodes;
 import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.FieldNode;
 import org.objectweb.asm.tree.InnerClassNode;
 import org.objectweb.asm.tree.MethodNode;
 
 import java.io.File;
 import java.io.IOException;
 import java.lang.reflect.Modifier;
-import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
 import java.util.jar.JarFile;
 import java.util.stream.Collectors;
 
@@ -35,8 +40,7 @@ public class Cartographer {
 	File sourcesDir;
 
 	File logFile;
-	//10/10 logger right here, TODO use a propper logger
-	StringJoiner logger = new StringJoiner(System.lineSeparator());
+	private LogSink logSink;
 
 	private Mappings oldMappings;
 	private Matches matches;
@@ -48,7 +52,8 @@ public class Cartographer {
 	File outputMappingsFile;
 	File outputMappingsTinyFile;
 	File historyFile;
-	File matchesFile;
+	//More than one file is a chain that gets composed into one set of matches
+	List<File> matchesFiles = new ArrayList<>();
 	File newConstructorFile;
 	File oldConstructorFile;
 
@@ -57,8 +62,20 @@ public class Cartographer {
 	private MappingHistory mappingHistory;
 	private Deobfuscator deobfuscator;
 	private LibraryProvider libraryProvider;
+	//False when the provider is shared with other runs, they close it themselves
+	private boolean ownLibraryProvider = true;
+	//Kept after the provider is dropped, the jar export needs them for the class hierarchy
+	private List<File> libraryFiles = new ArrayList<>();
+	private ClassHierarchy classHierarchy;
+	private ParsedJar oldParsedJar;
 
 	private boolean simulate = false;
+	private boolean incremental = false;
+	private boolean lowMemory = false;
+	private File spilledMappingsFile;
+	private int threads = 1;
+
+	private final PhaseMetrics metrics = new PhaseMetrics();
 
 	public int newClasses = 0;
 	public int matchedClasses = 0;
@@ -68,42 +85,85 @@ public class Cartographer {
 	public int matchedFields = 0;
 
 	Map<Set<String>, Set<String>> similarInterfaces = new HashMap<>();
-	HashMap<String, String> similarInterfaceNames = new HashMap<>();
+	//interface + "." + name + desc to the shared names of the similar interface groups it is in
+	Map<String, List<SharedName>> similarInterfaceIndex = new HashMap<>();
+	//new class name to old class name for the matched classes that have not changed
+	Map<String, String> unchangedClasses = new HashMap<>();
+	//class name to the interfaces (that class included if it is one) that declare each method signature
+	private final Map<String, Map<String, Set<String>>> interfaceMethodTables = new ConcurrentHashMap<>();
 
 	public void start() throws IOException {
+		boolean ownLog = logSink == null && logFile != null;
+		if (ownLog) {
+			logSink = new AsyncLogWriter(logFile);
+		}
+		try {
+			run();
+		} finally {
+			//Only still set when the run failed before it was done with the libraries
+			closeLibraryProvider();
+			if (logSink != null) {
+				logSink.close();
+			}
+			if (ownLog) {
+				logSink = null;
+			}
+		}
+	}
+
+	private void run() throws IOException {
 		Validate.notNull(newJar);
 		Validate.notNull(outputMappingsFile);
-		Validate.notNull(historyFile);
+		Validate.isTrue(historyFile != null || mappingHistory != null, "A history file or history is needed");
 		Validate.isTrue(!packageName.isEmpty());
 		Validate.notNull(newConstructorFile);
 
-		deobfuscator = new Deobfuscator(new JarFile(newJar));
+		metrics.reset();
+		try (PhaseMetrics.Timer timer = metrics.start("jar read")) {
+			deobfuscator = new Deobfuscator(new JarFile(newJar));
+		}
 		newConstructorMappings = new ConstructorMapping();
-		if (oldConstructorFile != null) {
-			oldConstructorMappings = new ConstructorMapping(oldConstructorFile);
+		if (oldConstructorMappings == null && oldConstructorFile != null) {
+			try (PhaseMetrics.Timer timer = metrics.start("constructors read")) {
+				oldConstructorMappings = new ConstructorMapping(oldConstructorFile);
+			}
 		}
 
-		if (historyFile.exists()) {
+		if (mappingHistory != null) {
+			//Given by the caller, carries on from where it was left
+		} else if (historyFile.exists()) {
 			System.out.println("Reading history file");
-			mappingHistory = MappingHistory.readHistory(historyFile);
+			try (PhaseMetrics.Timer timer = metrics.start("history read")) {
+				mappingHistory = MappingHistory.readHistory(historyFile);
+			}
 		} else {
 			mappingHistory = MappingHistory.newMappingsHistory();
 		}
 
-		if (oldMappingsFile != null && oldMappingsFile.exists()) {
+		if (oldMappings == null && oldMappingsFile != null && oldMappingsFile.exists()) {
 			System.out.println("Reading old mappings");
 			MappingsEnigmaReader mappingReader = new MappingsEnigmaReader();
-			try {
+			try (PhaseMetrics.Timer timer = metrics.start("mappings read")) {
 				oldMappings = mappingReader.read(oldMappingsFile);
 			} catch (MappingParseException e) {
 				throw new RuntimeException("Failed to read input mappings", e);
 			}
 		}
 
-		if (matchesFile != null && matchesFile.exists()) {
+		if (matchesFiles.size() > 1) {
+			System.out.println("Reading and composing " + matchesFiles.size() + " matches");
+			for (File file : matchesFiles) {
+				Validate.isTrue(file.exists(), "Missing matches file in chain " + file);
+			}
+			try (PhaseMetrics.Timer timer = metrics.start("matches read")) {
+				matches = Matches.readChain(matchesFiles);
+			}
+		} else if (matchesFiles.size() == 1 && matchesFiles.get(0).exists()) {
 			matches = new Matches();
 			System.out.println("Reading matches");
-			matches.read(matchesFile);
+			try (PhaseMetrics.Timer timer = metrics.start("matches read")) {
+				matches.read(matchesFiles.get(0));
+			}
 			//			System.out.println("Found " + matches.classMatches.size() + " matched classes");
 			//			System.out.println("Found " + matches.methodMatches.size() + " matched methods");
 			//			System.out.println("Found " + matches.methodArgMatches.size() + " matched method args");
@@ -112,120 +172,179 @@ public class Cartographer {
 
 		if (libraryProvider != null) {
 			System.out.println("Reading libs");
-			libraryProvider.load();
+			try (PhaseMetrics.Timer timer = metrics.start("library load")) {
+				//Only the hierarchy and method signatures are read from the library classes, so their code can be left out to save memory
+				libraryProvider.setSkipCode(lowMemory);
+				libraryProvider.load();
+			}
+			libraryFiles.clear();
+			libraryProvider.getLibs(libraryFiles);
 		}
+		classHierarchy = new ClassHierarchy(deobfuscator.getJar(), libraryProvider);
 
-		List<ClassEntry> classEntries = new ArrayList<>(deobfuscator.getJarIndex().getObfClassEntries());
-		List<MethodDefEntry> methodEntries = new ArrayList<>(deobfuscator.getJarIndex().getObfBehaviorEntries());
-		List<FieldDefEntry> fieldEntries = new ArrayList<>(deobfuscator.getJarIndex().getObfFieldEntries());
-
-		classEntries.sort(Comparator.comparingInt(o -> Util.getObfIndex(o.getName())));
-
-		Comparator<Object> entryComparator = Comparator
-			.comparingInt(o -> Util.getObfIndex((((Entry) o).getOwnerClassEntry().getName())))
-			.thenComparingInt(o -> Util.getObfIndex((((Entry) o).getName())))
-			.thenComparing((o1, o2) -> {
-				if (o1 instanceof ClassEntry && o2 instanceof ClassEntry) {
-					//Forces inner classes to go last
-					return Boolean.compare(((ClassEntry) o2).isInnerClass(), ((ClassEntry) o1).isInnerClass());
-				}
-				return 0;
-			});
+		EntryTable<ClassEntry> classTable = EntryTable.classes(deobfuscator.getJarIndex().getObfClassEntries(), deobfuscator.getJar());
+		EntryTable<MethodDefEntry> methodTable = EntryTable.members(deobfuscator.getJarIndex().getObfBehaviorEntries(), classTable, entry -> entry.getAccess().getFlags());
+		EntryTable<FieldDefEntry> fieldTable = EntryTable.members(deobfuscator.getJarIndex().getObfFieldEntries(), classTable, entry -> entry.getAccess().getFlags());
 
-		methodEntries.sort(entryComparator);
-		fieldEntries.sort(entryComparator);
+		List<ClassEntry> classEntries = classTable.getEntries(classTable.sorted());
+		int[] methodIds = methodTable.sorted();
+		int[] fieldIds = fieldTable.sorted();
 
 		//Check for similar interfaces
 		similarInterfaces.clear();
-		similarInterfaceNames.clear();
-		classEntries.forEach(this::checkSharedInterfaceNames);
+		similarInterfaceIndex.clear();
+		try (PhaseMetrics.Timer timer = metrics.start("interface scan")) {
+			//Each class is scanned on its own, the results are then merged in class order
+			for (List<Set<String>> sharedInterfaces : analyse(classEntries, this::findSharedInterfaces)) {
+				sharedInterfaces.forEach(this::addSimilarInterfaces);
+			}
+			interfaceMethodTables.clear();
+			buildSimilarInterfaceIndex();
+		}
 		System.out.println("Found " + similarInterfaces.size() + " similar interfaces");
 
+		unchangedClasses.clear();
+		if (incremental) {
+			Validate.notNull(oldJar, "Incremental updates need the old jar");
+			Validate.notNull(oldMappings, "Incremental updates need the old mappings");
+			Validate.notNull(matches, "Incremental updates need the matches");
+			System.out.println("Finding unchanged classes");
+			try (PhaseMetrics.Timer timer = metrics.start("unchanged classes")) {
+				oldParsedJar = new ParsedJar(new JarFile(oldJar));
+				for (Pair<String, String> unchangedClass : analyse(classEntries, this::findUnchangedClass)) {
+					unchangedClasses.put(unchangedClass.getLeft(), unchangedClass.getRight());
+				}
+			}
+			System.out.println("Found " + unchangedClasses.size() + " unchanged classes");
+		}
+
 		System.out.println("Processing classes");
-		for (ClassEntry classEntry : classEntries) {
-			if (!classEntry.isInnerClass()) {
-				try {
-					handleClass(classEntry);
-				} catch (MappingConflict mappingConflict) {
-					throw new RuntimeException("Failed to map class", mappingConflict);
+		try (PhaseMetrics.Timer timer = metrics.start("classes")) {
+			for (ClassEntry classEntry : classEntries) {
+				if (!classEntry.isInnerClass()) {
+					try {
+						handleClass(classEntry);
+					} catch (MappingConflict mappingConflict) {
+						throw new RuntimeException("Failed to map class", mappingConflict);
+					}
 				}
 			}
 		}
 
 		System.out.println("Processing methods");
-		for (MethodDefEntry methodEntry : methodEntries) {
-			handleMethod(methodEntry);
+		try (PhaseMetrics.Timer timer = metrics.start("methods")) {
+			//The analysis can run in parallel, the names are then given out in order so the output is the same as a single threaded run
+			//Skip all synthetic or bridged methods as renaming them can break them in weird and not so wonderful ways
+			List<MethodDefEntry> methodEntries = new ArrayList<>();
+			for (MethodDefEntry methodEntry : methodTable.getEntries(methodTable.without(methodIds, Opcodes.ACC_SYNTHETIC | Opcodes.ACC_BRIDGE))) {
+				//The deobfuscator is not thread safe, so its checks are done here before the analysis. We dont want sub method args to be remapped
+				if (deobfuscator.isObfuscatedIdentifier(methodEntry, true) && deobfuscator.isMethodProvider(methodEntry.getOwnerClassEntry(), methodEntry)) {
+					methodEntries.add(methodEntry);
+				}
+			}
+			for (Pair<MethodDefEntry, Matches.MemberKey> methodInfo : analyse(methodEntries, this::analyseMethod)) {
+				//Members of unchanged classes go through the same checks, they are only paired by position when there is no explicit match
+				String oldClassName = methodInfo.getRight() == null ? unchangedClasses.get(methodInfo.getLeft().getOwnerClassEntry().getName()) : null;
+				if (oldClassName == null || !carryOverMethod(methodInfo.getLeft(), oldClassName)) {
+					handleMethod(methodInfo.getLeft(), methodInfo.getRight());
+				}
+			}
 		}
 
 		System.out.println("Processing fields");
-		for (FieldDefEntry fieldEntry : fieldEntries) {
-			handleField(fieldEntry);
+		try (PhaseMetrics.Timer timer = metrics.start("fields")) {
+			List<FieldDefEntry> fieldEntries = new ArrayList<>();
+			for (FieldDefEntry fieldEntry : fieldTable.getEntries(fieldTable.without(fieldIds, Opcodes.ACC_SYNTHETIC))) {
+				if (deobfuscator.isObfuscatedIdentifier(fieldEntry, true)) {
+					fieldEntries.add(fieldEntry);
+				}
+			}
+			for (Pair<FieldDefEntry, Matches.MemberKey> fieldInfo : analyse(fieldEntries, this::analyseField)) {
+				String oldClassName = fieldInfo.getRight() == null ? unchangedClasses.get(fieldInfo.getLeft().getOwnerClassEntry().getName()) : null;
+				if (oldClassName == null || !carryOverField(fieldInfo.getLeft(), oldClassName)) {
+					handleField(fieldInfo.getLeft(), fieldInfo.getRight());
+				}
+			}
 		}
+		oldParsedJar = null;
 
 		//Destroy this as soon as possible as it can use a lot of ram
-		libraryProvider = null;
+		closeLibraryProvider();
+		classHierarchy = null;
+		if (lowMemory) {
+			//Only needed while names are being given out
+			oldMappings = null;
+			oldConstructorMappings = null;
+			matches = null;
+			similarInterfaces.clear();
+			similarInterfaceIndex.clear();
+			unchangedClasses.clear();
+		}
 
 		System.out.println("Matched Classes: " + matchedClasses + " New Classes: " + newClasses);
 		System.out.println("Matched Methods: " + matchedMethods + " New Methods: " + newMethods);
 		System.out.println("Matched Fields: " + matchedFields + " New Fields: " + newFields);
 
 		System.out.println("Rebuilding method names");
-		deobfuscator.rebuildMethodNames(new Deobfuscator.ProgressListener() {
-			final AtomicInteger count = new AtomicInteger();
+		try (PhaseMetrics.Timer timer = metrics.start("rebuild method names")) {
+			deobfuscator.rebuildMethodNames(new Deobfuscator.ProgressListener() {
+				final AtomicInteger count = new AtomicInteger();
 
-			@Override
-			public void init(int totalWork, String title) {
-				count.set(totalWork);
-			}
+				@Override
+				public void init(int totalWork, String title) {
+					count.set(totalWork);
+				}
 
-			@Override
-			public void onProgress(int numDone, String message) {
-				int percentage = (numDone * 100) / count.get();
-				System.out.print("\r" + numDone + "/" + count.get() + "\t\t" + percentage + "%\t\t" + message);
-			}
-		});
+				@Override
+				public void onProgress(int numDone, String message) {
+					int percentage = (numDone * 100) / count.get();
+					System.out.print("\r" + numDone + "/" + count.get() + "\t\t" + percentage + "%\t\t" + message);
+				}
+			});
+		}
 		System.out.println();
 
 		if (!simulate) {
-			System.out.println("Writing history to disk");
-			mappingHistory.writeToFile(historyFile);
+			if (historyFile != null) {
+				System.out.println("Writing history to disk");
+				try (PhaseMetrics.Timer timer = metrics.start("history export")) {
+					mappingHistory.save(historyFile);
+				}
+			}
 
 			System.out.println("Exporting new mappings");
-			MappingsEnigmaWriter mappingWriter = new MappingsEnigmaWriter();
-			mappingWriter.write(outputMappingsFile, deobfuscator.getMappings(), false);
-
-			newConstructorMappings.save(newConstructorFile);
+			try (PhaseMetrics.Timer timer = metrics.start("mappings export")) {
+				MappingsEnigmaWriter mappingWriter = new MappingsEnigmaWriter();
+				mappingWriter.write(outputMappingsFile, deobfuscator.getMappings(), false);
+				newConstructorMappings.save(newConstructorFile);
+			}
 
 			if (outputMappingsTinyFile != null) {
 				if (outputMappingsTinyFile.exists()) {
 					outputMappingsTinyFile.delete();
 				}
-				System.out.println("Converting mappings to tiny");
-				String[] args = new String[] {
-					newJar.getAbsolutePath(),
-					outputMappingsFile.getAbsolutePath(),
-					outputMappingsTinyFile.getAbsolutePath(),
-					"mojang",
-					"intermediary" };
-
-				try {
-					new CommandTinyify().run(args);
-				} catch (Exception e) {
-					throw new RuntimeException("Failed to convert mappings to tiny", e);
+				System.out.println("Writing tiny mappings");
+				try (PhaseMetrics.Timer timer = metrics.start("tiny export")) {
+					List<String> classNames = deobfuscator.getJarIndex().getObfClassEntries().stream().map(ClassEntry::getName).collect(Collectors.toList());
+					TinyWriter.write(deobfuscator.getMappings(), classNames, outputMappingsTinyFile, "mojang", "intermediary");
 				}
 			}
 		}
 
+		if (lowMemory && (outputJar != null || sourcesDir != null)) {
+			spillMappings();
+		}
+
 		if (outputJar != null) {
 			System.out.println("Exporting jar");
 			if (outputJar.exists()) {
 				outputJar.delete();
 			}
-			if (!outputJar.getParentFile().exists()) {
-				outputJar.getParentFile().mkdirs();
+			File tinyFile = simulate ? null : outputMappingsTinyFile;
+			try (PhaseMetrics.Timer timer = metrics.start("jar export")) {
+				//The tiny file has no parameter names, so the mappings are always needed
+				JarExporter.export(getMappings(), tinyFile, newJar, outputJar, libraryFiles);
 			}
-			deobfuscator.writeJar(outputJar, null);
-			System.out.println();
 		}
 		if (sourcesDir != null) {
 			if (sourcesDir.exists()) {
@@ -233,29 +352,48 @@ public class Cartographer {
 			}
 			sourcesDir.mkdir();
 			System.out.println("Writing sources");
-			deobfuscator.writeSources(sourcesDir, new Deobfuscator.ProgressListener() {
-				AtomicInteger count = new AtomicInteger();
-
-				@Override
-				public void init(int totalWork, String title) {
-					count.set(totalWork);
-				}
-
-				@Override
-				public void onProgress(int numDone, String message) {
-					int percentage = (numDone * 100) / count.get();
-					System.out.print("\r" + numDone + "/" + count.get() + "\t\t" + percentage + "%\t\t" + message);
+			try (PhaseMetrics.Timer timer = metrics.start("sources export")) {
+				if (deobfuscator == null) {
+					//Only the decompiler needs the jar again, so it is loaded with the spilled mappings after the jar export is done
+					try (JarFile jarFile = new JarFile(newJar)) {
+						deobfuscator = new Deobfuscator(jarFile);
+						deobfuscator.setMappings(readSpilledMappings());
+						new SourceExporter(deobfuscator, threads).export(sourcesDir);
+					}
+				} else {
+					new SourceExporter(deobfuscator, threads).export(sourcesDir);
 				}
-			});
-			System.out.println();
+			}
+			if (lowMemory) {
+				deobfuscator = null;
+			}
 		}
-		if (logFile != null) {
-			try {
-				FileUtils.writeStringToFile(logFile, logger.toString(), StandardCharsets.UTF_8);
-			} catch (IOException e) {
-				throw new RuntimeException(e);
+		if (spilledMappingsFile != null && simulate) {
+			spilledMappingsFile.delete();
+			spilledMappingsFile = null;
+		}
+	}
+
+	//Writes the mappings out and drops the deobfuscator, so the classes and the jar index are not held during the exports
+	private void spillMappings() throws IOException {
+		try (PhaseMetrics.Timer timer = metrics.start("spill mappings")) {
+			if (simulate) {
+				spilledMappingsFile = File.createTempFile("cartographer", ".mappings");
+				new MappingsEnigmaWriter().write(spilledMappingsFile, deobfuscator.getMappings(), false);
+			} else {
+				//Already written as an output
+				spilledMappingsFile = outputMappingsFile;
 			}
 		}
+		deobfuscator = null;
+	}
+
+	private Mappings readSpilledMappings() throws IOException {
+		try {
+			return new MappingsEnigmaReader().read(spilledMappingsFile);
+		} catch (MappingParseException e) {
+			throw new RuntimeException("Failed to read spilled mappings", e);
+		}
 	}
 
 	private void handleClass(ClassEntry classEntry) throws MappingConflict {
@@ -335,72 +473,51 @@ public class Cartographer {
 		return null;
 	}
 
-	private void handleMethod(MethodDefEntry methodEntry) {
-		if (!deobfuscator.isObfuscatedIdentifier(methodEntry, true)) {
-			return;
+	//Runs the analyser over all of the entries, skipped entries are dropped and the original order is kept.
+	//The analysers may only read the parsed jars, class hierarchy, matches and old mappings, the deobfuscator itself is not thread safe
+	private <T, R> List<R> analyse(List<T> entries, Function<T, R> analyser) {
+		if (threads <= 1) {
+			return entries.stream().map(analyser).filter(Objects::nonNull).collect(Collectors.toList());
 		}
-		if (methodEntry.getName().toLowerCase().contains("lambda$")) { //Nope
-			return;
+		ForkJoinPool pool = new ForkJoinPool(threads);
+		try {
+			return pool.submit(() -> entries.parallelStream().map(analyser).filter(Objects::nonNull).collect(Collectors.toList())).get();
+		} catch (InterruptedException | ExecutionException e) {
+			throw new RuntimeException("Failed to analyse entries", e);
+		} finally {
+			pool.shutdown();
 		}
+	}
 
-		//Skip all synthetic or bridged methods as renaming them can break them in weird and not so wonderful ways
-		if (methodEntry.getAccess().isSynthetic() || ((methodEntry.getAccess().getFlags() & Opcodes.ACC_BRIDGE) != 0)) {
-			return;
+	//Returns the method along with its match, or null if the method should not be mapped. This must not change any state or use the deobfuscator.
+	private Pair<MethodDefEntry, Matches.MemberKey> analyseMethod(MethodDefEntry methodEntry) {
+		if (methodEntry.getName().toLowerCase().contains("lambda$")) { //Nope
+			return null;
 		}
 
 		if (methodEntry.getName().length() > 3 && !methodEntry.isConstructor()) {
-			return;
+			return null;
 		}
 
-		ClassNode ownerClass = getClassNode(methodEntry.getOwnerClassEntry());
-		Util.ClassData classData = new Util.ClassData(ownerClass, deobfuscator.getJar(), libraryProvider);
-		Util.MethodData lookupMethod = classData.getMethodData(methodEntry);
-		Validate.notNull(lookupMethod);
+		ClassHierarchy.Node ownerNode = classHierarchy.getNode(methodEntry.getOwnerClassEntry().getName());
+		String desc = methodEntry.getDesc().toString();
+		Validate.notNull(ownerNode.getMethod(methodEntry.getName(), desc));
 
-		Set<Util.ClassData> ancestors = new HashSet<>();
-		classData.getAncestors(ancestors);
-
-		boolean foundAncestor = false;
-		for (Util.ClassData ancestor : ancestors) {
-			Util.MethodData ancestorCheck = ancestor.getMethodData(methodEntry);
-			if (ancestorCheck != null) {
-				boolean isPrivateOrStatic = ancestorCheck.isPrivate() || ancestorCheck.isStatic();
-				//Private or static methods are not an ancestor, they can have the same name + desc but do different things
-				if (!isPrivateOrStatic) {
-					foundAncestor = true;
-					break;
-				}
-			}
-			//Fuck enums
-			if (ancestor.name.equals(Enum.class.getName())) {
-				Util.ClassData dummyEnum = new Util.ClassData(DummyEnum.class);
-				for (Util.MethodData methodData : dummyEnum.methods) {
-					if (methodData.name.equals(methodEntry.getName())) {
-						foundAncestor = true;
-						break;
-					}
-				}
-			}
-		}
-
-		if (foundAncestor) {
-			return;
-		}
-
-		//We dont want sub method args to be remapped
-		if (!deobfuscator.isMethodProvider(methodEntry.getOwnerClassEntry(), methodEntry)) {
-			//System.out.println("Found in MC jar " + methodEntry.getName() + "-" + methodEntry.getOwnerClassEntry().getClassName());
-			return;
+		if (ownerNode.hasAncestorMethod(methodEntry.getName(), desc)) {
+			return null;
 		}
 
 		try {
 			NameValidator.validateMethodName(methodEntry.getName());
 		} catch (IllegalNameException e) {
-			return;
+			return null;
 		}
 
+		return Pair.of(methodEntry, getMethodMatch(methodEntry));
+	}
+
+	private void handleMethod(MethodDefEntry methodEntry, Matches.MemberKey match) {
 		Triple<MethodMapping, String, MethodMapping> mapping;
-		String match = getMethodMatch(methodEntry);
 		if (match != null) {
 			mapping = handleMatchedMethod(methodEntry, match);
 			matchedMethods++;
@@ -430,36 +547,42 @@ public class Cartographer {
 	}
 
 	private String handleSimilarInterface(String name, MethodDefEntry entry) {
-		for (Map.Entry<Set<String>, Set<String>> setEntry : similarInterfaces.entrySet()) {
-			Set<String> interfaces = setEntry.getKey();
-			Set<String> methods = setEntry.getValue();
-
-			String mainIfaceName = interfaces.toString() + entry.getName() + entry.getDesc();
-
-			if (interfaces.contains(entry.getOwnerClassEntry().getClassName())) {
-				if (methods.contains(entry.getName() + entry.getDesc())) {
-					if (similarInterfaceNames.containsKey(mainIfaceName)) {
-						name = similarInterfaceNames.get(mainIfaceName);
-					} else {
-						similarInterfaceNames.put(mainIfaceName, name);
-					}
+		List<SharedName> sharedNames = similarInterfaceIndex.get(entry.getOwnerClassEntry().getClassName() + "." + entry.getName() + entry.getDesc());
+		if (sharedNames != null) {
+			for (SharedName sharedName : sharedNames) {
+				if (sharedName.name != null) {
+					name = sharedName.name;
+				} else {
+					sharedName.name = name;
 				}
 			}
 		}
 		return name;
 	}
 
-	private Triple<MethodMapping, String, MethodMapping> handleMatchedMethod(MethodDefEntry methodEntry, String match) {
-		String oldClassName = match.substring(0, match.indexOf("."));
+	//Each common method of a similar interface group gets one shared name, indexed by every interface in the group
+	private void buildSimilarInterfaceIndex() {
+		for (Map.Entry<Set<String>, Set<String>> setEntry : similarInterfaces.entrySet()) {
+			for (String method : setEntry.getValue()) {
+				SharedName sharedName = new SharedName();
+				for (String iface : setEntry.getKey()) {
+					similarInterfaceIndex.computeIfAbsent(iface + "." + method, s -> new ArrayList<>()).add(sharedName);
+				}
+			}
+		}
+	}
+
+	static class SharedName {
+		String name;
+	}
+
+	private Triple<MethodMapping, String, MethodMapping> handleMatchedMethod(MethodDefEntry methodEntry, Matches.MemberKey match) {
+		String oldClassName = match.owner;
 		ClassMapping oldClass = getOldClassMapping(oldClassName);
 		if (oldClass == null) {
 			throw new RuntimeException("Failed to get mapping for: " + oldClassName);
 		}
-		String oldMethodDesc = match.substring(match.indexOf("("));
-		String s1 = match.substring(match.indexOf(".") + 1);
-
-		String oldMethodName = s1.substring(0, s1.indexOf("("));
-		MethodMapping oldMapping = oldClass.getMethodByObf(oldMethodName, new MethodDescriptor(oldMethodDesc));
+		MethodMapping oldMapping = oldClass.getMethodByObf(match.name, new MethodDescriptor(match.desc));
 		if (oldMapping == null) {
 			System.out.println("A matched method " + methodEntry.toString() + " did not a previous mapping, creating a new entry");
 			return handleNewMethod(methodEntry);
@@ -485,13 +608,9 @@ public class Cartographer {
 		return Triple.of(oldMapping, oldDebofName, mapping);
 	}
 
-	private String getMethodMatch(MethodDefEntry methodEntry) {
+	private Matches.MemberKey getMethodMatch(MethodDefEntry methodEntry) {
 		if (matches != null) {
-			String lookup = Util.translate(methodEntry);
-			if (matches.methodMatches.containsValue(lookup)) {
-				String match = matches.methodMatches.inverse().get(lookup);
-				return match;
-			}
+			return matches.methodMatches.inverse().get(Util.memberKey(methodEntry));
 		}
 		return null;
 	}
@@ -508,9 +627,9 @@ public class Cartographer {
 		}
 
 		for (int arg = 0; arg < arguments; arg++) {
-			String match = getMethodArgMatch(methodEntry, arg);
+			Matches.ArgKey match = getMethodArgMatch(methodEntry, arg);
 			if (match != null && oldMapping != null) {
-				int oldArgPos = Integer.parseInt(match.substring(match.indexOf("#") + 1));
+				int oldArgPos = match.index;
 				String oldName = oldArgMappings.get(oldArgPos).getName();
 				try {
 					newMapping.addArgumentMapping(new LocalVariableMapping(arg, oldName));
@@ -537,29 +656,23 @@ public class Cartographer {
 		}
 	}
 
-	private String getMethodArgMatch(MethodDefEntry methodEntry, int index) {
+	private Matches.ArgKey getMethodArgMatch(MethodDefEntry methodEntry, int index) {
 		if (matches != null) {
-			String lookup = Util.translate(methodEntry) + "#" + index;
-			if (matches.methodArgMatches.containsValue(lookup)) {
-				String match = matches.methodArgMatches.inverse().get(lookup);
-				return match;
-			}
+			return matches.methodArgMatches.inverse().get(new Matches.ArgKey(Util.memberKey(methodEntry), index));
 		}
 		return null;
 	}
 
-	private void handleField(FieldDefEntry fieldEntry) {
-		if (!deobfuscator.isObfuscatedIdentifier(fieldEntry, true)) {
-			return;
-		}
-		if (fieldEntry.getAccess().isSynthetic()) {
-			return;
-		}
+	//Returns the field along with its match, or null if the field should not be mapped. This must not change any state or use the deobfuscator.
+	private Pair<FieldDefEntry, Matches.MemberKey> analyseField(FieldDefEntry fieldEntry) {
 		//TODO this is a horrible way to figure out if it the entry is mapped
 		if (fieldEntry.getName().length() > 2) {
-			return;
+			return null;
 		}
-		String match = getFieldMatch(fieldEntry);
+		return Pair.of(fieldEntry, getFieldMatch(fieldEntry));
+	}
+
+	private void handleField(FieldDefEntry fieldEntry, Matches.MemberKey match) {
 		if (match != null) {
 			handleFieldMatch(fieldEntry, match);
 			matchedFields++;
@@ -580,34 +693,126 @@ public class Cartographer {
 		classMapping.addFieldMapping(new FieldMapping(fieldEntry.getName(), fieldEntry.getDesc(), newFieldName, Mappings.EntryModifier.UNCHANGED));
 	}
 
-	private void handleFieldMatch(FieldDefEntry fieldEntry, String match) {
-		String oldClassName = match.substring(0, match.indexOf("."));
+	private void handleFieldMatch(FieldDefEntry fieldEntry, Matches.MemberKey match) {
+		String oldClassName = match.owner;
 		ClassMapping oldClass = getOldClassMapping(oldClassName);
 		if (oldClass == null) {
 			throw new RuntimeException("Failed to get mapping for: " + oldClassName);
 		}
-		String oldFieldDesc = match.substring(match.indexOf(";;") + 2);
-		String s1 = match.substring(match.indexOf(".") + 1);
-		String oldFieldName = s1.substring(0, s1.indexOf(";;"));
-		FieldMapping oldMapping = oldClass.getFieldByObf(oldFieldName, new TypeDescriptor(oldFieldDesc));
+		FieldMapping oldMapping = oldClass.getFieldByObf(match.name, new TypeDescriptor(match.desc));
 
 		log("MF: " + fieldEntry.toString() + " -> " + oldMapping.getDeobfName());
 		ClassMapping classMapping = getClassMapping(fieldEntry.getOwnerClassEntry(), false);
 		classMapping.addFieldMapping(new FieldMapping(fieldEntry.getName(), fieldEntry.getDesc(), oldMapping.getDeobfName(), Mappings.EntryModifier.UNCHANGED));
 	}
 
-	private String getFieldMatch(FieldDefEntry fieldDefEntry) {
+	private Matches.MemberKey getFieldMatch(FieldDefEntry fieldDefEntry) {
 		if (matches != null) {
-			String className = fieldDefEntry.getOwnerClassEntry().getClassName();
-			String lookup = className + "." + fieldDefEntry.getName() + ";;" + fieldDefEntry.getDesc().toString();
-			if (matches.fieldMatches.containsValue(lookup)) {
-				String match = matches.fieldMatches.inverse().get(lookup);
-				return match;
-			}
+			return matches.fieldMatches.inverse().get(Util.memberKey(fieldDefEntry));
 		}
 		return null;
 	}
 
+	//Returns the new and old name of a matched class if its structure is the same in both jars. This must not change any state.
+	private Pair<String, String> findUnchangedClass(ClassEntry classEntry) {
+		String oldName = getClassMatch(classEntry);
+		if (oldName == null || getOldClassMapping(oldName) == null) {
+			return null;
+		}
+		ClassNode oldNode = oldParsedJar.getClassNode(oldName);
+		ClassNode newNode = getClassNode(classEntry);
+		if (oldNode == null || newNode == null) {
+			return null;
+		}
+		if (!ClassFingerprint.fingerprint(oldNode, this::remapOldClassName).equals(ClassFingerprint.fingerprint(newNode, UnaryOperator.identity()))) {
+			return null;
+		}
+		return Pair.of(classEntry.getName(), oldName);
+	}
+
+	//Moves old class names in to the new jar's names, old classes without a match can never equal a new class
+	private String remapOldClassName(String name) {
+		String match = matches.classMatches.get(name);
+		if (match != null) {
+			return match;
+		}
+		return oldParsedJar.getClassNode(name) != null ? "?" + name : name;
+	}
+
+	//Gives a method of an unchanged class the name of the method in the same position of the old class, returns false if that was not mapped
+	private boolean carryOverMethod(MethodDefEntry methodEntry, String oldClassName) {
+		//The classes are the same shape, so the members line up
+		List<MethodNode> newMethods = getClassNode(methodEntry.getOwnerClassEntry()).methods;
+		List<MethodNode> oldMethods = oldParsedJar.getClassNode(oldClassName).methods;
+		String desc = methodEntry.getDesc().toString();
+		MethodNode oldMethod = null;
+		for (int i = 0; i < newMethods.size(); i++) {
+			if (newMethods.get(i).name.equals(methodEntry.getName()) && newMethods.get(i).desc.equals(desc)) {
+				oldMethod = oldMethods.get(i);
+				break;
+			}
+		}
+		Validate.notNull(oldMethod);
+		MethodMapping oldMapping = getOldClassMapping(oldClassName).getMethodByObf(oldMethod.name, new MethodDescriptor(oldMethod.desc));
+		if (oldMapping == null) {
+			return false; //Was not mapped last time, so it gets a new name
+		}
+		String oldDebofName = oldMapping.getDeobfName();
+		if (methodEntry.isConstructor()) {
+			ConstructorMapping.Mapping constructorMapping = oldConstructorMappings.getMapping(oldClassName, oldMapping);
+			if (constructorMapping == null) {
+				throw new RuntimeException("Failed to get old mapping for " + oldMapping.getObfName() + " in " + oldClassName);
+			}
+			oldDebofName = constructorMapping.deobfName;
+		}
+
+		log("MM: " + methodEntry.getName() + desc + " -> " + oldDebofName);
+		MethodMapping mapping = new MethodMapping(methodEntry.getName(), methodEntry.getDesc());
+		if (!methodEntry.isConstructor()) {
+			mapping.setDeobfName(oldDebofName);
+		}
+		for (LocalVariableMapping oldArg : oldMapping.arguments()) {
+			try {
+				mapping.addArgumentMapping(new LocalVariableMapping(oldArg.getIndex(), oldArg.getName()));
+			} catch (MappingConflict mappingConflict) {
+				throw new RuntimeException("Failed to map arg", mappingConflict);
+			}
+			log("\tMP: " + mapping.toString() + "_" + oldArg.getIndex() + " -> " + oldArg.getName());
+		}
+		getClassMapping(methodEntry.getOwnerClassEntry(), false).addMethodMapping(mapping);
+		matchedMethods++;
+
+		if (methodEntry.isConstructor()) {
+			ConstructorMapping.Mapping constructorMapping = newConstructorMappings.addMapping(methodEntry);
+			constructorMapping.deobfName = oldDebofName;
+			constructorMapping.applyVariableMappings(mapping);
+		}
+		return true;
+	}
+
+	//Same as carryOverMethod, for fields
+	private boolean carryOverField(FieldDefEntry fieldEntry, String oldClassName) {
+		List<FieldNode> newFields = getClassNode(fieldEntry.getOwnerClassEntry()).fields;
+		List<FieldNode> oldFields = oldParsedJar.getClassNode(oldClassName).fields;
+		String desc = fieldEntry.getDesc().toString();
+		FieldNode oldField = null;
+		for (int i = 0; i < newFields.size(); i++) {
+			if (newFields.get(i).name.equals(fieldEntry.getName()) && newFields.get(i).desc.equals(desc)) {
+				oldField = oldFields.get(i);
+				break;
+			}
+		}
+		Validate.notNull(oldField);
+		FieldMapping oldMapping = getOldClassMapping(oldClassName).getFieldByObf(oldField.name, new TypeDescriptor(oldField.desc));
+		if (oldMapping == null) {
+			return false;
+		}
+		log("MF: " + fieldEntry.toString() + " -> " + oldMapping.getDeobfName());
+		getClassMapping(fieldEntry.getOwnerClassEntry(), false).addFieldMapping(new FieldMapping(fieldEntry.getName(), fieldEntry.getDesc(), oldMapping.getDeobfName(), Mappings.EntryModifier.UNCHANGED));
+		matchedFields++;
+		return true;
+	}
+
 	private ClassMapping getClassMapping(ClassEntry classEntry, boolean stopAtParent) {
 		List<ClassEntry> chain = classEntry.getClassChain();
 		ClassMapping parentMapping = null;
@@ -651,73 +856,101 @@ public class Cartographer {
 		return deobfuscator.getJar().getClassNode(className);
 	}
 
-	private void checkSharedInterfaceNames(ClassEntry classEntry) {
+	//Finds the methods of a class that are declared in more than one of its interfaces. This must not change any state.
+	private List<Set<String>> findSharedInterfaces(ClassEntry classEntry) {
 		ClassNode ownerClass = getClassNode(classEntry);
 		if (Modifier.isInterface(ownerClass.access)) {
-			return;
+			return null;
 		}
+		Map<String, Set<String>> interfaceMethods = getInterfaceMethods(ownerClass.name);
+		List<Set<String>> sharedInterfaces = new ArrayList<>();
 		for (MethodNode methodNode : ownerClass.methods) {
-			Set<String> interfaceNames = new HashSet<>();
-			findInInterfaces(methodNode, ownerClass, interfaceNames);
-			if (interfaceNames.size() > 1 && !similarInterfaces.containsKey(interfaceNames)) {
-				System.out.println("Found similar interface:");
-				System.out.println(interfaceNames);
-				System.out.println(findCommonMethods(interfaceNames));
-				System.out.println("####");
-				similarInterfaces.put(interfaceNames, findCommonMethods(interfaceNames));
+			Set<String> interfaceNames = interfaceMethods.get(methodNode.name + methodNode.desc);
+			if (interfaceNames != null && interfaceNames.size() > 1) {
+				sharedInterfaces.add(interfaceNames);
 			}
 		}
+		return sharedInterfaces;
 	}
 
-	private void findInInterfaces(MethodNode node, ClassNode baseClass, Set<String> ifaces) {
-		if (baseClass == null) {
-			return;
+	private void addSimilarInterfaces(Set<String> interfaceNames) {
+		if (!similarInterfaces.containsKey(interfaceNames)) {
+			Set<String> commonMethods = findCommonMethods(interfaceNames);
+			System.out.println("Found similar interface:");
+			System.out.println(interfaceNames);
+			System.out.println(commonMethods);
+			System.out.println("####");
+			similarInterfaces.put(new HashSet<>(interfaceNames), commonMethods);
+		}
+	}
+
+	//Walks the super classes and interfaces in the jar once per class, the sets in the tables are never changed once added
+	private Map<String, Set<String>> getInterfaceMethods(String className) {
+		if (className == null) {
+			return Collections.emptyMap();
+		}
+		Map<String, Set<String>> table = interfaceMethodTables.get(className);
+		if (table != null) {
+			return table;
 		}
-		if (Modifier.isInterface(baseClass.access)) {
-			for (MethodNode ifaceNode : baseClass.methods) {
-				if (ifaceNode.name.equals(node.name) && ifaceNode.desc.equals(node.desc)) {
-					ifaces.add(baseClass.name);
+		ClassNode classNode = getClassNode(className);
+		if (classNode == null) {
+			table = Collections.emptyMap();
+		} else {
+			table = new HashMap<>();
+			if (Modifier.isInterface(classNode.access)) {
+				for (MethodNode methodNode : classNode.methods) {
+					table.put(methodNode.name + methodNode.desc, Collections.singleton(classNode.name));
 				}
 			}
+			for (String iface : classNode.interfaces) {
+				mergeInterfaceMethods(table, getInterfaceMethods(iface));
+			}
+			mergeInterfaceMethods(table, getInterfaceMethods(classNode.superName));
 		}
-		for (String iface : baseClass.interfaces) {
-			findInInterfaces(node, getClassNode(iface), ifaces);
+		Map<String, Set<String>> existing = interfaceMethodTables.putIfAbsent(className, table);
+		return existing != null ? existing : table;
+	}
+
+	private static void mergeInterfaceMethods(Map<String, Set<String>> table, Map<String, Set<String>> parentTable) {
+		for (Map.Entry<String, Set<String>> entry : parentTable.entrySet()) {
+			Set<String> interfaces = table.get(entry.getKey());
+			if (interfaces == null) {
+				table.put(entry.getKey(), entry.getValue());
+			} else if (!interfaces.containsAll(entry.getValue())) {
+				Set<String> merged = new HashSet<>(interfaces);
+				merged.addAll(entry.getValue());
+				table.put(entry.getKey(), merged);
+			}
 		}
-		findInInterfaces(node, getClassNode(baseClass.superName), ifaces);
 	}
 
 	private Set<String> findCommonMethods(Set<String> interfaceNames) {
-		Set<String> methods = new HashSet<>();
+		Set<String> commonMethods = null;
 		for (String interfaceName : interfaceNames) {
-			ClassNode classNode = getClassNode(interfaceName);
-			methods.addAll(classNode.methods.stream()
-				.map(methodNode -> methodNode.name + methodNode.desc)
-				.collect(Collectors.toSet())
-			);
-		}
-		Set<String> commonMethods = new HashSet<>();
-		for (String method : methods) {
-			boolean allContain = true;
-			for (String interfaceName : interfaceNames) {
-				ClassNode classNode = getClassNode(interfaceName);
-				allContain = classNode.methods.stream()
-					.map(methodNode -> methodNode.name + methodNode.desc).anyMatch(method::equals);
-				if (!allContain) {
-					break;
-				}
+			Set<String> methods = new HashSet<>();
+			for (MethodNode methodNode : getClassNode(interfaceName).methods) {
+				methods.add(methodNode.name + methodNode.desc);
 			}
-			if (allContain) {
-				commonMethods.add(method);
+			if (commonMethods == null) {
+				commonMethods = methods;
+			} else {
+				commonMethods.retainAll(methods);
 			}
 		}
-		return commonMethods;
+		return commonMethods == null ? new HashSet<>() : commonMethods;
 	}
 
 	private void log(String log) {
-		if (logFile == null) {
+		if (logSink == null) {
 			return;
 		}
-		logger.add(log);
+		logSink.log(log);
+	}
+
+	//Timings for each phase of the last run
+	public PhaseMetrics getMetrics() {
+		return metrics;
 	}
 
 	public Cartographer setNewJar(File newJar) {
@@ -735,8 +968,16 @@ public class Cartographer {
 		return this;
 	}
 
+	//Null for no matches
 	public Cartographer setMatchesFile(File matchesFile) {
-		this.matchesFile = matchesFile;
+		this.matchesFiles = matchesFile == null ? Collections.emptyList() : Collections.singletonList(matchesFile);
+		return this;
+	}
+
+	//Matches from the old jar to each version in between and then to the new jar, in order
+	public Cartographer setMatchesFiles(List<File> matchesFiles) {
+		Validate.notEmpty(matchesFiles);
+		this.matchesFiles = new ArrayList<>(matchesFiles);
 		return this;
 	}
 
@@ -760,6 +1001,49 @@ public class Cartographer {
 		return this;
 	}
 
+	//Used instead of reading the history file, the history file is still written if set
+	public Cartographer setMappingHistory(MappingHistory mappingHistory) {
+		this.mappingHistory = mappingHistory;
+		return this;
+	}
+
+	//Used instead of reading the old mappings file
+	public Cartographer setOldMappings(Mappings oldMappings) {
+		this.oldMappings = oldMappings;
+		return this;
+	}
+
+	//Used instead of reading the old constructor file
+	public Cartographer setOldConstructorMappings(ConstructorMapping oldConstructorMappings) {
+		this.oldConstructorMappings = oldConstructorMappings;
+		return this;
+	}
+
+	//The outputs of the last run, so they can be given to the next run without writing and reading them again
+	//In low memory mode the mappings are read back from the output file, a simulated low memory run has none after it is done
+	public Mappings getMappings() throws IOException {
+		if (deobfuscator != null) {
+			return deobfuscator.getMappings();
+		}
+		if (spilledMappingsFile != null) {
+			return readSpilledMappings();
+		}
+		return null;
+	}
+
+	//The matches used by the last run, composed if there was a chain
+	Matches getMatches() {
+		return matches;
+	}
+
+	public MappingHistory getMappingHistory() {
+		return mappingHistory;
+	}
+
+	public ConstructorMapping getConstructorMappings() {
+		return newConstructorMappings;
+	}
+
 	public Cartographer setPackageName(String packageName) {
 		this.packageName = packageName;
 		return this;
@@ -770,11 +1054,47 @@ public class Cartographer {
 		return this;
 	}
 
+	//Members of matched classes that have not changed since the old jar and have no member match are paired with the old members by position
+	public Cartographer incremental() {
+		incremental = true;
+		return this;
+	}
+
+	//Drops everything as soon as it is not needed, and writes the mappings out to free the deobfuscator before the jar and sources are exported.
+	//The old mappings and matches are not kept after the run.
+	public Cartographer lowMemory() {
+		lowMemory = true;
+		return this;
+	}
+
+	//Number of threads used to analyse methods and fields and to write sources, names are still given out in the same order
+	public Cartographer setThreads(int threads) {
+		Validate.isTrue(threads > 0);
+		this.threads = threads;
+		return this;
+	}
+
+	//The provider is closed once the run is done with it
 	public Cartographer setLibraryProvider(LibraryProvider libraryProvider) {
 		this.libraryProvider = libraryProvider;
+		this.ownLibraryProvider = true;
+		return this;
+	}
+
+	//For a provider that is used by more than one run, it is left open
+	public Cartographer shareLibraryProvider(LibraryProvider libraryProvider) {
+		this.libraryProvider = libraryProvider;
+		this.ownLibraryProvider = false;
 		return this;
 	}
 
+	private void closeLibraryProvider() throws IOException {
+		if (libraryProvider != null && ownLibraryProvider) {
+			libraryProvider.close();
+		}
+		libraryProvider = null;
+	}
+
 	public Cartographer setOutputJar(File outputJar) {
 		this.outputJar = outputJar;
 		return this;
@@ -785,6 +1105,12 @@ public class Cartographer {
 		return this;
 	}
 
+	//Used instead of the log file when set, the sink is closed when start finishes
+	public Cartographer setLogSink(LogSink logSink) {
+		this.logSink = logSink;
+		return this;
+	}
+
 	public Cartographer setNewConstructorFile(File newConstructorFile) {
 		this.newConstructorFile = newConstructorFile;
 		return this;
@@ -0,0 +1,114 @@
+package cartographer;
+
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import org.objectweb.asm.Type;
+import org.objectweb.asm.tree.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.function.UnaryOperator;
+
+//Hash of the structure of a class that does not depend on the obfuscated names.
+//Member names are left out and every class reference goes through the remapper, so an old class can be compared to a new one using the class matches.
+public class ClassFingerprint {
+
+	public static HashCode fingerprint(ClassNode classNode, UnaryOperator<String> classNames) {
+		Hasher hasher = Hashing.murmur3_128().newHasher();
+		hasher.putInt(classNode.access);
+		putClass(hasher, classNode.superName, classNames);
+		hasher.putInt(classNode.interfaces.size());
+		for (String iface : classNode.interfaces) {
+			putClass(hasher, iface, classNames);
+		}
+
+		hasher.putInt(classNode.fields.size());
+		for (FieldNode fieldNode : classNode.fields) {
+			hasher.putInt(fieldNode.access);
+			putString(hasher, remapDesc(fieldNode.desc, classNames));
+			if (fieldNode.value != null) {
+				putString(hasher, fieldNode.value.toString());
+			}
+		}
+
+		hasher.putInt(classNode.methods.size());
+		for (MethodNode methodNode : classNode.methods) {
+			hasher.putInt(methodNode.access);
+			//Constructors and static init keep their names
+			if (methodNode.name.startsWith("<")) {
+				putString(hasher, methodNode.name);
+			}
+			putString(hasher, remapDesc(methodNode.desc, classNames));
+			putCode(hasher, methodNode.instructions, classNames);
+		}
+		return hasher.hash();
+	}
+
+	private static void putCode(Hasher hasher, InsnList instructions, UnaryOperator<String> classNames) {
+		hasher.putInt(instructions.size());
+		for (AbstractInsnNode insn = instructions.getFirst(); insn != null; insn = insn.getNext()) {
+			if (insn.getOpcode() < 0) {
+				continue; //Labels, line numbers and frames
+			}
+			hasher.putInt(insn.getOpcode());
+			if (insn instanceof FieldInsnNode) {
+				putClass(hasher, ((FieldInsnNode) insn).owner, classNames);
+				putString(hasher, remapDesc(((FieldInsnNode) insn).desc, classNames));
+			} else if (insn instanceof MethodInsnNode) {
+				putClass(hasher, ((MethodInsnNode) insn).owner, classNames);
+				putString(hasher, remapDesc(((MethodInsnNode) insn).desc, classNames));
+			} else if (insn instanceof TypeInsnNode) {
+				putClass(hasher, ((TypeInsnNode) insn).desc, classNames);
+			} else if (insn instanceof InvokeDynamicInsnNode) {
+				putString(hasher, remapDesc(((InvokeDynamicInsnNode) insn).desc, classNames));
+			} else if (insn instanceof MultiANewArrayInsnNode) {
+				putString(hasher, remapDesc(((MultiANewArrayInsnNode) insn).desc, classNames));
+			} else if (insn instanceof LdcInsnNode) {
+				Object cst = ((LdcInsnNode) insn).cst;
+				putString(hasher, cst instanceof Type ? remapDesc(((Type) cst).getDescriptor(), classNames) : cst.toString());
+			} else if (insn instanceof IntInsnNode) {
+				hasher.putInt(((IntInsnNode) insn).operand);
+			} else if (insn instanceof VarInsnNode) {
+				hasher.putInt(((VarInsnNode) insn).var);
+			} else if (insn instanceof IincInsnNode) {
+				hasher.putInt(((IincInsnNode) insn).var);
+				hasher.putInt(((IincInsnNode) insn).incr);
+			}
+		}
+	}
+
+	private static void putClass(Hasher hasher, String name, UnaryOperator<String> classNames) {
+		if (name == null) {
+			hasher.putInt(0);
+		} else if (name.startsWith("[")) {
+			putString(hasher, remapDesc(name, classNames));
+		} else {
+			putString(hasher, classNames.apply(name));
+		}
+	}
+
+	private static void putString(Hasher hasher, String string) {
+		hasher.putInt(string.length());
+		hasher.putString(string, StandardCharsets.UTF_8);
+	}
+
+	//Remaps every Lname; in a field or method descriptor
+	static String remapDesc(String desc, UnaryOperator<String> classNames) {
+		int start = desc.indexOf('L');
+		if (start == -1) {
+			return desc;
+		}
+		StringBuilder builder = new StringBuilder(desc.length());
+		int last = 0;
+		while (start != -1) {
+			int end = desc.indexOf(';', start);
+			builder.append(desc, last, start + 1);
+			builder.append(classNames.apply(desc.substring(start + 1, end)));
+			last = end;
+			start = desc.indexOf('L', end);
+		}
+		builder.append(desc, last, desc.length());
+		return builder.toString();
+	}
+
+}
@@ -0,0 +1,182 @@
+package cartographer;
+
+import cuchaz.enigma.analysis.ParsedJar;
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.MethodNode;
+
+import java.lang.reflect.Method;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+//Build once index of the class hierarchy spanning the mc jar, the libraries and the jdk, replaces building a Util.ClassData tree per method
+public class ClassHierarchy {
+
+	private static final String ENUM_CLASS = "java/lang/Enum";
+	private static final Set<String> DUMMY_ENUM_METHODS = new HashSet<>();
+
+	static {
+		for (Util.MethodData methodData : new Util.ClassData(DummyEnum.class).methods) {
+			DUMMY_ENUM_METHODS.add(methodData.name);
+		}
+	}
+
+	private final ParsedJar jar;
+	private final LibraryProvider libraryProvider;
+
+	private final Map<String, Node> nodes = new ConcurrentHashMap<>();
+
+	public ClassHierarchy(ParsedJar jar, LibraryProvider libraryProvider) {
+		this.jar = jar;
+		this.libraryProvider = libraryProvider;
+	}
+
+	public Node getNode(String name) {
+		Node node = nodes.get(name);
+		if (node != null) {
+			return node;
+		}
+		//Nodes are built recursively, so only one thread builds at a time to keep each class resolved exactly once
+		synchronized (this) {
+			return resolve(name);
+		}
+	}
+
+	public int size() {
+		return nodes.size();
+	}
+
+	private Node resolve(String name) {
+		Node node = nodes.get(name);
+		if (node != null) {
+			return node;
+		}
+		//First we try and grab the class from the provided mc jar, then the libs
+		ClassNode classNode = jar.getClassNode(name);
+		if (classNode == null && libraryProvider != null) {
+			classNode = libraryProvider.getClassNode(name);
+		}
+		if (classNode != null) {
+			node = new Node(classNode.name);
+			node.superClass = classNode.superName == null ? null : resolve(classNode.superName);
+			for (String iface : classNode.interfaces) {
+				node.interfaces.add(resolve(iface));
+			}
+			for (MethodNode methodNode : classNode.methods) {
+				node.addMethod(new Util.MethodData(methodNode));
+			}
+		} else {
+			//Check to see if the classpath has it
+			Class<?> clazz;
+			try {
+				clazz = Class.forName(name.replace('/', '.'), false, ClassHierarchy.class.getClassLoader());
+			} catch (ClassNotFoundException e) {
+				throw new RuntimeException("Failed to find class " + name, e);
+			}
+			node = new Node(name);
+			if (!clazz.getName().equals(Object.class.getName()) && clazz.getSuperclass() != null) {
+				node.superClass = resolve(clazz.getSuperclass().getName().replace('.', '/'));
+			}
+			for (Class<?> iface : clazz.getInterfaces()) {
+				node.interfaces.add(resolve(iface.getName().replace('.', '/')));
+			}
+			for (Method method : clazz.getDeclaredMethods()) {
+				node.addMethod(new Util.MethodData(method));
+			}
+		}
+		nodes.put(name, node);
+		return node;
+	}
+
+	public static class Node {
+
+		public final String name;
+
+		Node superClass;
+		final List<Node> interfaces = new ArrayList<>();
+		final Map<String, Util.MethodData> methods = new HashMap<>();
+
+		private volatile Set<Node> ancestors;
+		private volatile Set<String> inheritedMethods;
+
+		Node(String name) {
+			this.name = name;
+		}
+
+		private void addMethod(Util.MethodData methodData) {
+			methods.putIfAbsent(methodData.name + methodData.desc, methodData);
+		}
+
+		public Node getSuperClass() {
+			return superClass;
+		}
+
+		public List<Node> getInterfaces() {
+			return Collections.unmodifiableList(interfaces);
+		}
+
+		//Only the methods declared in this class
+		public Util.MethodData getMethod(String name, String desc) {
+			return methods.get(name + desc);
+		}
+
+		public Collection<Util.MethodData> getMethods() {
+			return Collections.unmodifiableCollection(methods.values());
+		}
+
+		//All super classes and interfaces, computed once
+		public Set<Node> getAncestors() {
+			Set<Node> result = ancestors;
+			if (result == null) {
+				result = new LinkedHashSet<>();
+				for (Node iface : interfaces) {
+					result.add(iface);
+					result.addAll(iface.getAncestors());
+				}
+				if (superClass != null) {
+					result.add(superClass);
+					result.addAll(superClass.getAncestors());
+				}
+				result = Collections.unmodifiableSet(result);
+				ancestors = result;
+			}
+			return result;
+		}
+
+		//Returns true when name + desc is declared in any ancestor and is not private or static
+		//Private or static methods are not an ancestor, they can have the same name + desc but do different things
+		public boolean hasAncestorMethod(String name, String desc) {
+			Set<String> inherited = inheritedMethods;
+			if (inherited == null) {
+				inherited = new HashSet<>();
+				for (Node ancestor : getAncestors()) {
+					for (Util.MethodData methodData : ancestor.methods.values()) {
+						if (!methodData.isPrivate() && !methodData.isStatic()) {
+							inherited.add(methodData.name + methodData.desc);
+						}
+					}
+				}
+				inheritedMethods = inherited;
+			}
+			if (inherited.contains(name + desc)) {
+				return true;
+			}
+			//Fuck enums
+			return DUMMY_ENUM_METHODS.contains(name) && isEnum();
+		}
+
+		public boolean isEnum() {
+			for (Node ancestor : getAncestors()) {
+				if (ancestor.name.equals(ENUM_CLASS)) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		@Override
+		public String toString() {
+			return name;
+		}
+	}
+
+}
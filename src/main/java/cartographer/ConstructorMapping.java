@@ -1,19 +1,24 @@
 package cartographer;
 
 import com.google.common.collect.Maps;
-import com.google.common.reflect.TypeToken;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
 import cuchaz.enigma.mapping.LocalVariableMapping;
 import cuchaz.enigma.mapping.MethodMapping;
 import cuchaz.enigma.mapping.entry.MethodDefEntry;
-import org.apache.commons.io.FileUtils;
 
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.IOException;
-import java.lang.reflect.Type;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -21,14 +26,21 @@ import java.util.Map;
 public class ConstructorMapping {
 
 	List<Mapping> mappings = new ArrayList<>();
+	//owner + desc to the first mapping added for it
+	private final Map<String, Mapping> mappingIndex = new HashMap<>();
 
 	public ConstructorMapping() {
 	}
 
 	public ConstructorMapping(File file) throws IOException {
 		Gson gson = new GsonBuilder().create();
-		Type type = new TypeToken<List<Mapping>>(){}.getType();
-		mappings = gson.fromJson(FileUtils.readFileToString(file, StandardCharsets.UTF_8), type);
+		try (JsonReader reader = gson.newJsonReader(new BufferedReader(Channels.newReader(FileChannel.open(file.toPath(), StandardOpenOption.READ), StandardCharsets.UTF_8.newDecoder(), -1)))) {
+			reader.beginArray();
+			while (reader.hasNext()) {
+				add(gson.fromJson(reader, Mapping.class));
+			}
+			reader.endArray();
+		}
 	}
 
 	public Mapping addMapping(MethodDefEntry methodEntry){
@@ -36,35 +48,35 @@ public class ConstructorMapping {
 			throw new RuntimeException("Method " + methodEntry.toString() + " is not a constructor!");
 		}
 		Mapping mapping = new Mapping(methodEntry);
-		mappings.add(mapping);
+		add(mapping);
 		return mapping;
 	}
 
+	private void add(Mapping mapping) {
+		mappings.add(mapping);
+		mappingIndex.putIfAbsent(mapping.owner + mapping.desc, mapping);
+	}
+
 	public Mapping getMapping(MethodDefEntry methodDefEntry){
-		return mappings.stream()
-			.filter(
-					mapping ->
-						mapping.desc.equals(methodDefEntry.getDesc().toString()) &&
-						mapping.owner.equals(methodDefEntry.getOwnerClassEntry().getName()
-					))
-			.findFirst()
-			.orElse(null);
+		return mappingIndex.get(methodDefEntry.getOwnerClassEntry().getName() + methodDefEntry.getDesc().toString());
 	}
 
 	public Mapping getMapping(String className, MethodMapping methodMapping){
-		return mappings.stream()
-			.filter(
-				mapping ->
-						mapping.desc.equals(methodMapping.getObfDesc().toString()) &&
-						mapping.owner.equals(className)
-				)
-			.findFirst()
-			.orElse(null);
+		return mappingIndex.get(className + methodMapping.getObfDesc().toString());
 	}
 
 	public void save(File file) throws IOException {
-		String json = new GsonBuilder().setPrettyPrinting().create().toJson(mappings);
-		FileUtils.writeStringToFile(file, json, StandardCharsets.UTF_8);
+		if (file.getParentFile() != null) {
+			file.getParentFile().mkdirs();
+		}
+		Gson gson = new GsonBuilder().setPrettyPrinting().create();
+		try (JsonWriter writer = gson.newJsonWriter(new BufferedWriter(Channels.newWriter(FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING), StandardCharsets.UTF_8.newEncoder(), -1)))) {
+			writer.beginArray();
+			for (Mapping mapping : mappings) {
+				gson.toJson(mapping, Mapping.class, writer);
+			}
+			writer.endArray();
+		}
 	}
 
 	public static class Mapping {
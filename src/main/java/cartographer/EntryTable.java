@@ -0,0 +1,132 @@
+package cartographer;
+
+import cuchaz.enigma.analysis.ParsedJar;
+import cuchaz.enigma.mapping.entry.ClassEntry;
+import cuchaz.enigma.mapping.entry.Entry;
+import org.objectweb.asm.tree.ClassNode;
+
+import java.util.*;
+import java.util.function.ToIntFunction;
+
+//Gives each class, method or field of a jar a dense int id, in the order the jar index returns them.
+//The obf sort key and access flags of each entry are kept in arrays indexed by the id, so sorting and filtering do not go back to the entry.
+//The sort keys are worked out once per entry, the ids are then sorted with a primitive sort instead of a comparator that works them out on every compare.
+public class EntryTable<T extends Entry> {
+
+	private final List<T> entries;
+	private final Map<String, Integer> ids;
+	private final long[] sortKeys;
+	private final int[] access;
+
+	private EntryTable(Collection<T> entries, boolean indexNames) {
+		this.entries = new ArrayList<>(entries);
+		this.ids = indexNames ? new HashMap<>(this.entries.size() * 2) : null;
+		this.sortKeys = new long[this.entries.size()];
+		this.access = new int[this.entries.size()];
+	}
+
+	//Sorted by the obf index of the name
+	public static EntryTable<ClassEntry> classes(Collection<ClassEntry> entries, ParsedJar jar) {
+		EntryTable<ClassEntry> table = new EntryTable<>(entries, true);
+		for (int id = 0; id < table.size(); id++) {
+			String name = table.get(id).getName();
+			table.ids.put(name, id);
+			table.sortKeys[id] = Util.getObfIndex(name);
+			ClassNode classNode = jar.getClassNode(name);
+			table.access[id] = classNode != null ? classNode.access : 0;
+		}
+		return table;
+	}
+
+	//Sorted by the obf index of the owner, then of the name
+	public static <T extends Entry> EntryTable<T> members(Collection<T> entries, EntryTable<ClassEntry> classes, ToIntFunction<T> access) {
+		EntryTable<T> table = new EntryTable<>(entries, false);
+		for (int id = 0; id < table.size(); id++) {
+			T entry = table.get(id);
+			int owner = classes.getId(entry.getOwnerClassEntry().getName());
+			long ownerKey = owner != -1 ? classes.getSortKey(owner) : Util.getObfIndex(entry.getOwnerClassEntry().getName());
+			table.sortKeys[id] = ownerKey << 32 | Util.getObfIndex(entry.getName());
+			table.access[id] = access.applyAsInt(entry);
+		}
+		return table;
+	}
+
+	public int size() {
+		return entries.size();
+	}
+
+	public T get(int id) {
+		return entries.get(id);
+	}
+
+	//Only classes are indexed by name, -1 when there is no class with the name
+	public int getId(String name) {
+		Integer id = ids.get(name);
+		return id != null ? id : -1;
+	}
+
+	public long getSortKey(int id) {
+		return sortKeys[id];
+	}
+
+	//All of the ids ordered by their sort keys, ids with the same key keep the order they were added in like a stable sort would.
+	//The id is packed into the low bits of each key so a plain long sort gives the order, member keys do not leave room for it so they are ranked first.
+	public int[] sorted() {
+		long[] keys = sortKeys;
+		long maxKey = 0;
+		for (long sortKey : sortKeys) {
+			maxKey = Math.max(maxKey, sortKey);
+		}
+		if (maxKey > Integer.MAX_VALUE) {
+			keys = rank(sortKeys);
+		}
+		long[] packed = new long[size()];
+		for (int id = 0; id < packed.length; id++) {
+			packed[id] = keys[id] << 32 | id;
+		}
+		Arrays.parallelSort(packed);
+		int[] sorted = new int[packed.length];
+		for (int i = 0; i < packed.length; i++) {
+			sorted[i] = (int) packed[i];
+		}
+		return sorted;
+	}
+
+	//Replaces each key with its position among the distinct keys, this keeps the order but fits in an int
+	private static long[] rank(long[] keys) {
+		long[] distinct = keys.clone();
+		Arrays.parallelSort(distinct);
+		int count = 0;
+		for (int i = 0; i < distinct.length; i++) {
+			if (count == 0 || distinct[i] != distinct[count - 1]) {
+				distinct[count++] = distinct[i];
+			}
+		}
+		long[] ranks = new long[keys.length];
+		for (int i = 0; i < keys.length; i++) {
+			ranks[i] = Arrays.binarySearch(distinct, 0, count, keys[i]);
+		}
+		return ranks;
+	}
+
+	//The ids that have none of the access flags, in the same order
+	public int[] without(int[] ids, int flags) {
+		int[] kept = new int[ids.length];
+		int count = 0;
+		for (int id : ids) {
+			if ((access[id] & flags) == 0) {
+				kept[count++] = id;
+			}
+		}
+		return Arrays.copyOf(kept, count);
+	}
+
+	public List<T> getEntries(int[] ids) {
+		List<T> list = new ArrayList<>(ids.length);
+		for (int id : ids) {
+			list.add(entries.get(id));
+		}
+		return list;
+	}
+
+}
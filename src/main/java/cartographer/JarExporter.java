@@ -0,0 +1,136 @@
+package cartographer;
+
+import cuchaz.enigma.mapping.Mappings;
+import net.fabricmc.tinyremapper.TinyRemapper;
+import net.fabricmc.tinyremapper.TinyUtils;
+import org.apache.commons.io.IOUtils;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+//Remaps the jar with tiny-remapper, which remaps the classes on all cores, then adds the parameter names from the enigma mappings.
+//The classes are written sorted by name with a fixed time, so the same input always gives the same jar.
+public class JarExporter {
+
+	//1980-02-01, far enough past the start of the zip time range that no time zone moves it out
+	private static final long ENTRY_TIME = new GregorianCalendar(1980, Calendar.FEBRUARY, 1, 0, 0, 0).getTimeInMillis();
+
+	public static void export(Mappings mappings, File tinyMappings, File inputJar, File outputJar, List<File> libraries) throws IOException {
+		File tempMappings = null;
+		if (tinyMappings == null || !tinyMappings.exists()) {
+			tempMappings = File.createTempFile("cartographer", ".tiny");
+			TinyWriter.write(mappings, inputJar, tempMappings, "mojang", "intermediary");
+			tinyMappings = tempMappings;
+		}
+		if (outputJar.getParentFile() != null) {
+			outputJar.getParentFile().mkdirs();
+		}
+
+		ParameterNames parameterNames = new ParameterNames(mappings);
+		//tiny-remapper hands the classes back in whatever order its threads finish them, and blocking those threads to wait for the next name could
+		//stall its pool. So the classes are streamed in to a stored temp jar as they come, then copied from it in name order.
+		File tempClasses = File.createTempFile("cartographer", ".jar");
+		try {
+			TinyRemapper remapper = TinyRemapper.newRemapper()
+				.withMappings(TinyUtils.createTinyMappingProvider(tinyMappings.toPath(), "mojang", "intermediary"))
+				.build();
+			try (ZipOutputStream tempStream = new ZipOutputStream(new BufferedOutputStream(Files.newOutputStream(tempClasses.toPath()), 1 << 16))) {
+				remapper.read(inputJar.toPath());
+				for (File library : libraries) {
+					remapper.read(library.toPath());
+				}
+				//Called from the remapper threads
+				remapper.apply(inputJar.toPath(), (name, bytes) -> {
+					byte[] output = parameterNames.apply(name, bytes);
+					ZipEntry entry = storedEntry(name + ".class", output);
+					synchronized (tempStream) {
+						try {
+							tempStream.putNextEntry(entry);
+							tempStream.write(output);
+							tempStream.closeEntry();
+						} catch (IOException e) {
+							throw new RuntimeException("Failed to write " + name, e);
+						}
+					}
+				});
+			} finally {
+				remapper.finish();
+				if (tempMappings != null) {
+					tempMappings.delete();
+				}
+			}
+
+			try (ZipFile classes = new ZipFile(tempClasses);
+			     ZipOutputStream zipOutputStream = new ZipOutputStream(new BufferedOutputStream(Files.newOutputStream(outputJar.toPath()), 1 << 16))) {
+				List<? extends ZipEntry> entries = Collections.list(classes.entries());
+				entries.sort(Comparator.comparing(ZipEntry::getName));
+				for (ZipEntry entry : entries) {
+					zipOutputStream.putNextEntry(newEntry(entry.getName()));
+					try (InputStream inputStream = classes.getInputStream(entry)) {
+						IOUtils.copy(inputStream, zipOutputStream);
+					}
+					zipOutputStream.closeEntry();
+				}
+				copyResources(inputJar, zipOutputStream);
+			}
+		} finally {
+			tempClasses.delete();
+		}
+	}
+
+	//The temp jar is only read back once, so it is not worth compressing
+	private static ZipEntry storedEntry(String name, byte[] data) {
+		CRC32 crc = new CRC32();
+		crc.update(data);
+		ZipEntry entry = new ZipEntry(name);
+		entry.setMethod(ZipEntry.STORED);
+		entry.setSize(data.length);
+		entry.setCompressedSize(data.length);
+		entry.setCrc(crc.getValue());
+		return entry;
+	}
+
+	//Copies everything that is not a class straight across, signatures are dropped as the classes have changed
+	private static void copyResources(File inputJar, ZipOutputStream zipOutputStream) throws IOException {
+		try (JarFile jarFile = new JarFile(inputJar)) {
+			List<JarEntry> resources = new ArrayList<>();
+			Enumeration<JarEntry> entries = jarFile.entries();
+			while (entries.hasMoreElements()) {
+				JarEntry entry = entries.nextElement();
+				String name = entry.getName();
+				if (!entry.isDirectory() && !name.endsWith(".class") && !isSignature(name)) {
+					resources.add(entry);
+				}
+			}
+			resources.sort(Comparator.comparing(JarEntry::getName));
+			for (JarEntry entry : resources) {
+				zipOutputStream.putNextEntry(newEntry(entry.getName()));
+				try (InputStream inputStream = jarFile.getInputStream(entry)) {
+					IOUtils.copy(inputStream, zipOutputStream);
+				}
+				zipOutputStream.closeEntry();
+			}
+		}
+	}
+
+	private static ZipEntry newEntry(String name) {
+		ZipEntry entry = new ZipEntry(name);
+		entry.setTime(ENTRY_TIME);
+		return entry;
+	}
+
+	static boolean isSignature(String name) {
+		return name.startsWith("META-INF/") && (name.endsWith(".SF") || name.endsWith(".RSA") || name.endsWith(".DSA"));
+	}
+
+}
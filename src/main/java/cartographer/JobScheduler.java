@@ -0,0 +1,108 @@
+package cartographer;
+
+import com.google.common.base.Stopwatch;
+import org.apache.commons.lang3.Validate;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+//Runs jobs as soon as the jobs they depend on are done.
+//Serial jobs also wait for the serial job added before them, so they run one at a time and always in the order they were added.
+//A job whose dependency failed is skipped, a failed serial job skips every serial job after it as they share state.
+public class JobScheduler {
+
+	public interface Task {
+		void run() throws Exception;
+	}
+
+	private final Map<String, Job> jobs = new LinkedHashMap<>();
+
+	public JobScheduler add(String name, Task task, String... dependencies) {
+		return add(name, task, false, dependencies);
+	}
+
+	public JobScheduler addSerial(String name, Task task, String... dependencies) {
+		return add(name, task, true, dependencies);
+	}
+
+	private JobScheduler add(String name, Task task, boolean serial, String... dependencies) {
+		Validate.isTrue(!jobs.containsKey(name), "Duplicate job " + name);
+		for (String dependency : dependencies) {
+			//Dependencies have to be added first, so there can not be a cycle
+			Validate.isTrue(jobs.containsKey(dependency), "Job " + name + " depends on unknown job " + dependency);
+		}
+		jobs.put(name, new Job(name, task, serial, Arrays.asList(dependencies)));
+		return this;
+	}
+
+	public void run(int threads) {
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		Map<String, CompletableFuture<Void>> futures = new HashMap<>();
+		CompletableFuture<Void> lastSerial = CompletableFuture.completedFuture(null);
+		try {
+			for (Job job : jobs.values()) {
+				List<CompletableFuture<Void>> waitFor = new ArrayList<>();
+				for (String dependency : job.dependencies) {
+					waitFor.add(futures.get(dependency));
+				}
+				if (job.serial) {
+					waitFor.add(lastSerial);
+				}
+				CompletableFuture<Void> future = CompletableFuture.allOf(waitFor.toArray(new CompletableFuture[0]))
+					.thenRunAsync(() -> runJob(job), executor);
+				if (job.serial) {
+					lastSerial = future;
+				}
+				futures.put(job.name, future);
+			}
+
+			List<String> failed = new ArrayList<>();
+			Throwable firstFailure = null;
+			for (Job job : jobs.values()) {
+				try {
+					futures.get(job.name).join();
+				} catch (CompletionException e) {
+					failed.add(job.name);
+					if (firstFailure == null) {
+						firstFailure = e.getCause();
+					}
+				}
+			}
+			if (!failed.isEmpty()) {
+				throw new RuntimeException("Failed or skipped jobs: " + String.join(", ", failed), firstFailure);
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private static void runJob(Job job) {
+		System.out.println("Starting " + job.name);
+		Stopwatch stopwatch = Stopwatch.createStarted();
+		try {
+			job.task.run();
+		} catch (Exception e) {
+			System.out.println("Failed " + job.name + " after " + stopwatch.stop());
+			throw new CompletionException(e);
+		}
+		System.out.println("Finished " + job.name + " in " + stopwatch.stop());
+	}
+
+	private static class Job {
+		final String name;
+		final Task task;
+		final boolean serial;
+		final List<String> dependencies;
+
+		Job(String name, Task task, boolean serial, List<String> dependencies) {
+			this.name = name;
+			this.task = task;
+			this.serial = serial;
+			this.dependencies = dependencies;
+		}
+	}
+
+}
@@ -1,41 +1,122 @@
 package cartographer;
 
-import cuchaz.enigma.analysis.ParsedJar;
+import org.objectweb.asm.ClassReader;
 import org.objectweb.asm.tree.ClassNode;
 
+import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.List;
+import java.io.InputStream;
+import java.util.*;
+import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
 
-//TODO lets cache this stuff
-public abstract class LibraryProvider {
+//Only the class names are indexed when loading, the classes are parsed when they are first asked for
+public abstract class LibraryProvider implements Closeable {
 
-	List<ParsedJar> parsedJarList = new ArrayList<>();
+	private final List<JarFile> jars = new ArrayList<>();
+	private Map<String, LibraryClass> classIndex;
+
+	private int cacheSize = 1024;
+	private int parsingOptions = 0;
+	private final Map<String, ClassNode> classCache = new LinkedHashMap<String, ClassNode>(16, 0.75F, true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, ClassNode> eldest) {
+			return size() > cacheSize;
+		}
+	};
 
 	abstract void getLibs(List<File> fileList);
 
-	public void load() throws IOException {
+	public synchronized void load() throws IOException {
+		if (classIndex != null) {
+			return;
+		}
 		List<File> libs = new ArrayList<>();
 		getLibs(libs);
-		for (File file : libs) {
-			try {
-				parsedJarList.add(new ParsedJar(new JarFile(file)));
-			} catch (Exception e) {
-				throw new RuntimeException("Failed to read jar " + file.getName(), e);
+		Map<String, LibraryClass> index = new HashMap<>();
+		try {
+			for (File file : libs) {
+				try {
+					JarFile jarFile = new JarFile(file);
+					jars.add(jarFile);
+					Enumeration<JarEntry> entries = jarFile.entries();
+					while (entries.hasMoreElements()) {
+						JarEntry entry = entries.nextElement();
+						if (entry.getName().endsWith(".class")) {
+							String className = entry.getName().substring(0, entry.getName().length() - 6);
+							//The first jar to have the class wins
+							index.putIfAbsent(className, new LibraryClass(jarFile, entry));
+						}
+					}
+				} catch (Exception e) {
+					throw new RuntimeException("Failed to read jar " + file.getName(), e);
+				}
 			}
+		} catch (RuntimeException e) {
+			//Dont leave the jars that were opened before the failure open
+			close();
+			throw e;
 		}
+		classIndex = index;
 	}
 
-	public ClassNode getClassNode(String className) {
-		for (ParsedJar jar : parsedJarList) {
-			ClassNode classNode = jar.getClassNode(className);
-			if (classNode != null) {
-				return classNode;
-			}
+	public synchronized ClassNode getClassNode(String className) {
+		if (classIndex == null) {
+			return null;
+		}
+		ClassNode classNode = classCache.get(className);
+		if (classNode != null) {
+			return classNode;
+		}
+		LibraryClass libraryClass = classIndex.get(className);
+		if (libraryClass == null) {
+			return null;
+		}
+		try (InputStream inputStream = libraryClass.jar.getInputStream(libraryClass.entry)) {
+			ClassReader reader = new ClassReader(inputStream);
+			classNode = new ClassNode();
+			reader.accept(classNode, parsingOptions);
+		} catch (IOException e) {
+			throw new RuntimeException("Failed to read " + className + " from " + libraryClass.jar.getName(), e);
+		}
+		classCache.put(className, classNode);
+		return classNode;
+	}
+
+	//The max number of parsed classes kept in memory
+	public synchronized void setCacheSize(int cacheSize) {
+		this.cacheSize = cacheSize;
+	}
+
+	//Leaves the method bodies, debug info and frames out of the parsed classes
+	public synchronized void setSkipCode(boolean skipCode) {
+		int options = skipCode ? ClassReader.SKIP_CODE | ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES : 0;
+		if (options != parsingOptions) {
+			parsingOptions = options;
+			//Classes already parsed with the other options
+			classCache.clear();
+		}
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		for (JarFile jar : jars) {
+			jar.close();
+		}
+		jars.clear();
+		classCache.clear();
+		classIndex = null;
+	}
+
+	private static class LibraryClass {
+		final JarFile jar;
+		final JarEntry entry;
+
+		LibraryClass(JarFile jar, JarEntry entry) {
+			this.jar = jar;
+			this.entry = entry;
 		}
-		return null;
 	}
 
 }
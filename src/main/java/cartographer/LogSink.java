@@ -0,0 +1,10 @@
+package cartographer;
+
+import java.io.Closeable;
+
+//Where the NC/MC/NM/MM/NP/MP/NF/MF lines from Cartographer end up
+public interface LogSink extends Closeable {
+
+	void log(String line);
+
+}
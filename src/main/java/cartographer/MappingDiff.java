@@ -0,0 +1,310 @@
+package cartographer;
+
+import com.google.common.collect.LinkedHashMultimap;
+import com.google.common.collect.SetMultimap;
+import com.google.gson.stream.JsonWriter;
+import cuchaz.enigma.mapping.*;
+import cuchaz.enigma.throwables.MappingParseException;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.*;
+
+//Finds the intermediary names that were added, removed or now point at a different obfuscated class or member between two versions.
+//Both versions are indexed by intermediary name, then each table is walked once. With matches a name is expected to point at the match of its old target,
+//without them at the same target, which is useful for comparing two runs of the same version.
+public class MappingDiff {
+
+	public enum Kind {
+		CLASS, METHOD, FIELD, PARAM
+	}
+
+	public enum Change {
+		ADDED, REMOVED, RETARGETED
+	}
+
+	public interface Listener {
+		void change(Kind kind, Change change, String name, Set<Object> oldTargets, Set<Object> newTargets) throws IOException;
+
+		void finish(int[][] counts) throws IOException;
+	}
+
+	//Intermediary name to the obfuscated entries it is given to, similar interfaces can share a method name
+	public static class Tables {
+		final Map<Kind, SetMultimap<String, Object>> tables = new EnumMap<>(Kind.class);
+
+		Tables() {
+			for (Kind kind : Kind.values()) {
+				tables.put(kind, LinkedHashMultimap.create());
+			}
+		}
+
+		SetMultimap<String, Object> get(Kind kind) {
+			return tables.get(kind);
+		}
+	}
+
+	public static Tables load(File mappingsFile, File constructorsFile) throws IOException {
+		Mappings mappings;
+		try {
+			mappings = new MappingsEnigmaReader().read(mappingsFile);
+		} catch (MappingParseException e) {
+			throw new RuntimeException("Failed to read " + mappingsFile, e);
+		}
+		return index(mappings, constructorsFile.exists() ? new ConstructorMapping(constructorsFile) : new ConstructorMapping());
+	}
+
+	public static Tables index(Mappings mappings, ConstructorMapping constructors) {
+		Tables tables = new Tables();
+		for (ClassMapping classMapping : mappings.classes()) {
+			String deobfName = classMapping.getDeobfName() != null ? classMapping.getDeobfName() : classMapping.getObfFullName();
+			index(tables, classMapping, classMapping.getObfFullName(), deobfName, constructors);
+		}
+		return tables;
+	}
+
+	private static void index(Tables tables, ClassMapping classMapping, String obfName, String deobfName, ConstructorMapping constructors) {
+		tables.get(Kind.CLASS).put(deobfName, obfName);
+		for (FieldMapping fieldMapping : classMapping.fields()) {
+			if (fieldMapping.getDeobfName() != null) {
+				tables.get(Kind.FIELD).put(fieldMapping.getDeobfName(), new Matches.MemberKey(obfName, fieldMapping.getObfName(), fieldMapping.getObfDesc().toString()));
+			}
+		}
+		for (MethodMapping methodMapping : classMapping.methods()) {
+			Matches.MemberKey method = new Matches.MemberKey(obfName, methodMapping.getObfName(), methodMapping.getObfDesc().toString());
+			String methodName = methodMapping.getDeobfName();
+			if (methodName == null) {
+				//Constructor names are only saved in the constructor mappings
+				ConstructorMapping.Mapping constructorMapping = constructors.getMapping(obfName, methodMapping);
+				methodName = constructorMapping != null ? constructorMapping.deobfName : null;
+			}
+			if (methodName != null) {
+				tables.get(Kind.METHOD).put(methodName, method);
+			}
+			for (LocalVariableMapping argument : methodMapping.arguments()) {
+				tables.get(Kind.PARAM).put(argument.getName(), new Matches.ArgKey(method, argument.getIndex()));
+			}
+		}
+		for (ClassMapping innerClass : classMapping.innerClasses()) {
+			String innerDeobfName = innerClass.getDeobfName() != null ? innerClass.getDeobfName() : innerClass.getObfSimpleName();
+			index(tables, innerClass, obfName + "$" + innerClass.getObfSimpleName(), deobfName + "$" + innerDeobfName, constructors);
+		}
+	}
+
+	private final Tables oldTables;
+	private final Tables newTables;
+	private final Matches matches;
+
+	public MappingDiff(Tables oldTables, Tables newTables, Matches matches) {
+		this.oldTables = oldTables;
+		this.newTables = newTables;
+		this.matches = matches;
+	}
+
+	//Returns the number of each change for each kind, indexed by the ordinals
+	public int[][] diff(Listener listener) throws IOException {
+		int[][] counts = new int[Kind.values().length][Change.values().length];
+		for (Kind kind : Kind.values()) {
+			SetMultimap<String, Object> oldTable = oldTables.get(kind);
+			SetMultimap<String, Object> newTable = newTables.get(kind);
+			Map<?, ?> matchTable = getMatchTable(kind);
+			for (String name : oldTable.keySet()) {
+				Set<Object> oldTargets = oldTable.get(name);
+				if (!newTable.containsKey(name)) {
+					counts[kind.ordinal()][Change.REMOVED.ordinal()]++;
+					listener.change(kind, Change.REMOVED, name, oldTargets, Collections.emptySet());
+					continue;
+				}
+				Set<Object> newTargets = newTable.get(name);
+				if (!isExpected(oldTargets, newTargets, matchTable)) {
+					counts[kind.ordinal()][Change.RETARGETED.ordinal()]++;
+					listener.change(kind, Change.RETARGETED, name, oldTargets, newTargets);
+				}
+			}
+			for (String name : newTable.keySet()) {
+				if (!oldTable.containsKey(name)) {
+					counts[kind.ordinal()][Change.ADDED.ordinal()]++;
+					listener.change(kind, Change.ADDED, name, Collections.emptySet(), newTable.get(name));
+				}
+			}
+		}
+		listener.finish(counts);
+		return counts;
+	}
+
+	private boolean isExpected(Set<Object> oldTargets, Set<Object> newTargets, Map<?, ?> matchTable) {
+		if (oldTargets.size() != newTargets.size()) {
+			return false;
+		}
+		for (Object oldTarget : oldTargets) {
+			Object expected = matchTable == null ? oldTarget : matchTable.get(oldTarget);
+			if (expected == null || !newTargets.contains(expected)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private Map<?, ?> getMatchTable(Kind kind) {
+		if (matches == null) {
+			return null;
+		}
+		switch (kind) {
+			case CLASS:
+				return matches.classMatches;
+			case METHOD:
+				return matches.methodMatches;
+			case FIELD:
+				return matches.fieldMatches;
+			case PARAM:
+				return matches.methodArgMatches;
+			default:
+				throw new IllegalArgumentException(kind.name());
+		}
+	}
+
+	//One line per change, then the counts
+	public static class TextWriter implements Listener {
+		private final Writer writer;
+
+		public TextWriter(Writer writer) {
+			this.writer = writer;
+		}
+
+		@Override
+		public void change(Kind kind, Change change, String name, Set<Object> oldTargets, Set<Object> newTargets) throws IOException {
+			writer.write(change.name() + "\t" + kind.name() + "\t" + name);
+			if (!oldTargets.isEmpty()) {
+				writer.write("\t" + join(oldTargets));
+			}
+			if (change == Change.RETARGETED) {
+				writer.write(" ->");
+			}
+			if (!newTargets.isEmpty()) {
+				writer.write("\t" + join(newTargets));
+			}
+			writer.write('\n');
+		}
+
+		@Override
+		public void finish(int[][] counts) throws IOException {
+			for (Kind kind : Kind.values()) {
+				writer.write(kind.name());
+				for (Change change : Change.values()) {
+					writer.write(" " + change.name().toLowerCase(Locale.ROOT) + ": " + counts[kind.ordinal()][change.ordinal()]);
+				}
+				writer.write('\n');
+			}
+		}
+
+		private static String join(Set<Object> targets) {
+			StringJoiner joiner = new StringJoiner(", ");
+			targets.forEach(target -> joiner.add(target.toString()));
+			return joiner.toString();
+		}
+	}
+
+	//{"changes": [{"kind", "change", "name", "old": [], "new": []}], "counts": {kind: {change: count}}}
+	public static class JsonReportWriter implements Listener {
+		private final JsonWriter writer;
+		private boolean started;
+
+		public JsonReportWriter(Writer writer) {
+			this.writer = new JsonWriter(writer);
+			this.writer.setIndent("\t");
+		}
+
+		@Override
+		public void change(Kind kind, Change change, String name, Set<Object> oldTargets, Set<Object> newTargets) throws IOException {
+			start();
+			writer.beginObject();
+			writer.name("kind").value(kind.name());
+			writer.name("change").value(change.name());
+			writer.name("name").value(name);
+			writeTargets("old", oldTargets);
+			writeTargets("new", newTargets);
+			writer.endObject();
+		}
+
+		private void writeTargets(String name, Set<Object> targets) throws IOException {
+			writer.name(name).beginArray();
+			for (Object target : targets) {
+				writer.value(target.toString());
+			}
+			writer.endArray();
+		}
+
+		private void start() throws IOException {
+			if (!started) {
+				started = true;
+				writer.beginObject();
+				writer.name("changes").beginArray();
+			}
+		}
+
+		@Override
+		public void finish(int[][] counts) throws IOException {
+			start();
+			writer.endArray();
+			writer.name("counts").beginObject();
+			for (Kind kind : Kind.values()) {
+				writer.name(kind.name()).beginObject();
+				for (Change change : Change.values()) {
+					writer.name(change.name()).value(counts[kind.ordinal()][change.ordinal()]);
+				}
+				writer.endObject();
+			}
+			writer.endObject();
+			writer.endObject();
+			writer.flush();
+		}
+	}
+
+	//Writes a text and a json report in one pass, either file can be null
+	public int[][] writeReports(File textFile, File jsonFile) throws IOException {
+		List<Listener> listeners = new ArrayList<>();
+		List<Writer> writers = new ArrayList<>();
+		try {
+			if (textFile != null) {
+				Writer writer = newWriter(textFile);
+				writers.add(writer);
+				listeners.add(new TextWriter(writer));
+			}
+			if (jsonFile != null) {
+				Writer writer = newWriter(jsonFile);
+				writers.add(writer);
+				listeners.add(new JsonReportWriter(writer));
+			}
+			return diff(new Listener() {
+				@Override
+				public void change(Kind kind, Change change, String name, Set<Object> oldTargets, Set<Object> newTargets) throws IOException {
+					for (Listener listener : listeners) {
+						listener.change(kind, change, name, oldTargets, newTargets);
+					}
+				}
+
+				@Override
+				public void finish(int[][] counts) throws IOException {
+					for (Listener listener : listeners) {
+						listener.finish(counts);
+					}
+				}
+			});
+		} finally {
+			for (Writer writer : writers) {
+				writer.close();
+			}
+		}
+	}
+
+	private static Writer newWriter(File file) throws IOException {
+		if (file.getParentFile() != null) {
+			file.getParentFile().mkdirs();
+		}
+		return Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8);
+	}
+
+}
@@ -1,17 +1,15 @@
 package cartographer;
 
 import com.google.common.base.Charsets;
-import com.google.common.base.Predicate;
-import org.apache.commons.io.FileUtils;
 
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
+import java.io.Writer;
 import java.nio.file.Files;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.StringJoiner;
-import java.util.stream.Collectors;
 
 public class MappingHistory {
 
@@ -24,35 +22,41 @@ public class MappingHistory {
 		return history;
 	}
 
+	//Reads either the text or the binary history format
 	public static MappingHistory readHistory(File file) throws IOException {
+		if (BinaryHistory.isBinary(file)) {
+			return BinaryHistory.read(file);
+		}
 		MappingHistory history = newMappingsHistory();
-		BufferedReader reader = Files.newBufferedReader(file.toPath());
-		String line;
-		while ((line = reader.readLine()) != null) {
-			if (line.isEmpty()) {
-				continue;
-			}
-			if (line.startsWith("CLASS")) {
-				String[] split = line.split("\t");
-				NamedEntry entry = new NamedEntry(split[1], Type.CLASS);
-				history.classes.add(entry);
-			}
-			if (line.startsWith("METHOD")) {
-				String[] split = line.split("\t");
-				SignatureEntry entry = new SignatureEntry(split[1], split[2], Type.METHOD);
-				history.methods.add(entry);
-			}
-			if (line.startsWith("ARG")) {
-				String[] split = line.split("\t");
-				NamedEntry entry = new NamedEntry(split[1], Type.ARG);
-				history.args.add(entry);
-			}
-			if (line.startsWith("FIELD")) {
-				String[] split = line.split("\t");
-				SignatureEntry entry = new SignatureEntry(split[1], split[2], Type.FIELD);
-				history.fields.add(entry);
+		try (BufferedReader reader = Files.newBufferedReader(file.toPath())) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				if (line.isEmpty()) {
+					continue;
+				}
+				if (line.startsWith("CLASS")) {
+					String[] split = line.split("\t");
+					NamedEntry entry = new NamedEntry(split[1], Type.CLASS);
+					history.classes.add(entry);
+				}
+				if (line.startsWith("METHOD")) {
+					String[] split = line.split("\t");
+					SignatureEntry entry = new SignatureEntry(split[1], split[2], Type.METHOD);
+					history.methods.add(entry);
+				}
+				if (line.startsWith("ARG")) {
+					String[] split = line.split("\t");
+					NamedEntry entry = new NamedEntry(split[1], Type.ARG);
+					history.args.add(entry);
+				}
+				if (line.startsWith("FIELD")) {
+					String[] split = line.split("\t");
+					SignatureEntry entry = new SignatureEntry(split[1], split[2], Type.FIELD);
+					history.fields.add(entry);
+				}
 			}
 		}
+		history.rebuildArgIndex();
 		return history;
 	}
 
@@ -61,6 +65,9 @@ public class MappingHistory {
 	public List<SignatureEntry> methods;
 	public List<NamedEntry> args;
 
+	//The number of args generated for each method, indexed by the method number
+	private int[] argCounts = new int[0];
+
 	public String generateClassName() {
 		String newClassName = "class_" + classes.size();
 		NamedEntry newClassEntry = new NamedEntry(newClassName, Type.CLASS);
@@ -77,8 +84,7 @@ public class MappingHistory {
 
 	public String generateArgName(String name) {
 		int method = Integer.parseInt(name.substring(name.indexOf("_") + 1));
-		List<NamedEntry> existingNames = findArgMappingsForMethod(method);
-		String newArgName = "param_" + method + "_" + existingNames.size();
+		String newArgName = "param_" + method + "_" + nextArgIndex(method);
 		NamedEntry newArgEntry = new NamedEntry(newArgName, Type.ARG);
 		args.add(newArgEntry);
 		return newArgName;
@@ -91,19 +97,58 @@ public class MappingHistory {
 		return newFieldName;
 	}
 
+	//Writes the binary format if the file ends with BinaryHistory.EXTENSION, otherwise the text format
+	public void save(File file) throws IOException {
+		if (file.getName().endsWith(BinaryHistory.EXTENSION)) {
+			writeToBinaryFile(file);
+		} else {
+			writeToFile(file);
+		}
+	}
+
 	public void writeToFile(File file) throws IOException {
-		StringJoiner output = new StringJoiner("\n");
-		classes.forEach(namedEntry -> output.add(namedEntry.toString()));
-		methods.forEach(namedEntry -> output.add(namedEntry.toString()));
-		fields.forEach(namedEntry -> output.add(namedEntry.toString()));
-		args.forEach(namedEntry -> output.add(namedEntry.toString()));
-		FileUtils.writeStringToFile(file, output.toString(), Charsets.UTF_8);
+		if (file.getParentFile() != null) {
+			file.getParentFile().mkdirs();
+		}
+		try (Writer writer = Files.newBufferedWriter(file.toPath(), Charsets.UTF_8)) {
+			boolean first = true;
+			for (List<? extends NamedEntry> entries : Arrays.asList(classes, methods, fields, args)) {
+				for (NamedEntry entry : entries) {
+					if (!first) {
+						writer.write('\n');
+					}
+					writer.write(entry.toString());
+					first = false;
+				}
+			}
+		}
+	}
+
+	public void writeToBinaryFile(File file) throws IOException {
+		if (file.getParentFile() != null) {
+			file.getParentFile().mkdirs();
+		}
+		BinaryHistory.write(this, file);
 	}
 
-	private List<NamedEntry> findArgMappingsForMethod(int method) {
-		return args.stream()
-			.filter((Predicate<NamedEntry>) input -> input.name.startsWith("param_" + method + "_"))
-			.collect(Collectors.toList());
+	int nextArgIndex(int method) {
+		if (method >= argCounts.length) {
+			argCounts = Arrays.copyOf(argCounts, Math.max(method + 1, argCounts.length * 2));
+		}
+		return argCounts[method]++;
+	}
+
+	//Counts the existing args for each method so new ones dont need to scan the whole list
+	void rebuildArgIndex() {
+		argCounts = new int[0];
+		for (NamedEntry arg : args) {
+			int start = arg.name.indexOf('_') + 1;
+			int end = arg.name.indexOf('_', start);
+			if (start == 0 || end == -1) {
+				continue; //Not a generated name, so it cant clash with one
+			}
+			nextArgIndex(Integer.parseInt(arg.name.substring(start, end)));
+		}
 	}
 
 	public static class SignatureEntry extends NamedEntry {
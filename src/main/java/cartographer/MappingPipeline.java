@@ -0,0 +1,230 @@
+package cartographer;
+
+import cuchaz.enigma.mapping.Mappings;
+import cuchaz.enigma.mapping.MappingsEnigmaReader;
+import cuchaz.enigma.throwables.MappingParseException;
+import org.apache.commons.lang3.Validate;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+//Runs a chain of versions, each step is given the mappings, history and constructors of the step before it from memory.
+//Files are only written as outputs, and versions that use the same libraries share one loaded library provider.
+//The outputs of every version are kept until released, so a version can be updated to more than one target.
+//All versions share one history, so the steps must not run at the same time.
+public class MappingPipeline implements Closeable {
+
+	private File mappingsDir = new File("mappings");
+	private File matchesDir = new File("matches");
+	private File logsDir = new File("logs");
+	private File jarsDir = new File("finaljars");
+	private File diffsDir;
+	private int threads = Runtime.getRuntime().availableProcessors();
+	private boolean lowMemory = false;
+
+	//The last version that was mapped
+	private String version;
+	private final Map<String, Step> steps = new HashMap<>();
+	private MappingHistory history;
+
+	private MinecraftLibProvider libraryProvider;
+	private List<String> libraryArtifacts;
+
+	//Starts a new chain with a fresh history
+	public MappingPipeline generate(String version) throws IOException {
+		System.out.println("Generating new mappings for " + version);
+		MinecraftLibProvider provider = new MinecraftLibProvider(version);
+		Cartographer cartographer = newCartographer(version, provider)
+			.setMappingHistory(MappingHistory.newMappingsHistory())
+			.setLogFile(new File(logsDir, "generation_" + version + ".txt"));
+		cartographer.start();
+		finishStep(version, cartographer);
+		return this;
+	}
+
+	//Carries on a chain from mappings that are already on disk, this is the only time they are read
+	public MappingPipeline from(String version) throws IOException {
+		System.out.println("Reading mappings for " + version);
+		Mappings mappings;
+		try {
+			mappings = new MappingsEnigmaReader().read(getMappingsFile(version));
+		} catch (MappingParseException e) {
+			throw new RuntimeException("Failed to read mappings for " + version, e);
+		}
+		ConstructorMapping constructors = new ConstructorMapping(getConstructorFile(version));
+		if (history == null) {
+			history = MappingHistory.readHistory(getHistoryFile());
+		}
+		steps.put(version, new Step(new MinecraftLibProvider(version).minecraftJar(), mappings, constructors));
+		this.version = version;
+		return this;
+	}
+
+	//Updates from the last version that was mapped
+	public MappingPipeline update(String target) throws IOException {
+		Validate.notNull(version, "generate or from must be called before update");
+		return update(version, target);
+	}
+
+	//The versions in between are only used for their matches, nothing is mapped or written for them
+	public MappingPipeline update(String source, String target, String... skipped) throws IOException {
+		Step step = steps.get(source);
+		Validate.notNull(step, "No outputs for " + source + ", it has not been mapped or was released");
+		System.out.println("Updating mappings from " + source + " to " + target);
+		List<File> matchesFiles = new ArrayList<>();
+		String from = source;
+		for (String version : skipped) {
+			matchesFiles.add(new File(matchesDir, from + "-" + version + ".match"));
+			from = version;
+		}
+		matchesFiles.add(new File(matchesDir, from + "-" + target + ".match"));
+		MinecraftLibProvider provider = new MinecraftLibProvider(target);
+		Cartographer cartographer = newCartographer(target, provider)
+			.setOldJar(step.jar)
+			.setOldMappings(step.mappings)
+			.setOldConstructorMappings(step.constructors)
+			.setMappingHistory(history)
+			.setMatchesFiles(matchesFiles)
+			.setLogFile(new File(logsDir, "update_" + source + "_" + target + ".txt"));
+		cartographer.start();
+		finishStep(target, cartographer);
+		if (diffsDir != null) {
+			System.out.println("Writing diff from " + source + " to " + target);
+			//A low memory run does not keep its matches
+			Matches matches = cartographer.getMatches();
+			if (matches == null && matchesFiles.stream().allMatch(File::exists)) {
+				matches = Matches.readChain(matchesFiles);
+			}
+			MappingDiff diff = new MappingDiff(MappingDiff.index(step.mappings, step.constructors), MappingDiff.index(steps.get(target).mappings, cartographer.getConstructorMappings()), matches);
+			diff.writeReports(new File(diffsDir, source + "-" + target + ".txt"), new File(diffsDir, source + "-" + target + ".json"));
+		}
+		return this;
+	}
+
+	private Cartographer newCartographer(String version, MinecraftLibProvider provider) throws IOException {
+		Cartographer cartographer = new Cartographer()
+			.setNewJar(provider.minecraftJar())
+			.shareLibraryProvider(getLibraryProvider(provider))
+			.setThreads(threads)
+			.setOutputMappingsFile(getMappingsFile(version))
+			.setOutputMappingsTinyFile(new File(mappingsDir, version + ".tiny"))
+			.setNewConstructorFile(getConstructorFile(version))
+			//Written after every step so the files on disk always agree with each other
+			.setHistoryFile(getHistoryFile());
+		if (jarsDir != null) {
+			cartographer.setOutputJar(new File(jarsDir, "mapped." + version + ".jar"));
+		}
+		if (lowMemory) {
+			cartographer.lowMemory();
+		}
+		return cartographer;
+	}
+
+	private void finishStep(String version, Cartographer cartographer) throws IOException {
+		System.out.print(cartographer.getMetrics().report());
+		this.version = version;
+		this.history = cartographer.getMappingHistory();
+		steps.put(version, new Step(cartographer.newJar, cartographer.getMappings(), cartographer.getConstructorMappings()));
+	}
+
+	//Drops the outputs of a version that will not be updated from again
+	public void release(String version) {
+		steps.remove(version);
+	}
+
+	//Keeps the loaded provider while the libraries stay the same, so their classes are only indexed and parsed once
+	private LibraryProvider getLibraryProvider(MinecraftLibProvider provider) throws IOException {
+		List<String> artifacts = provider.getLibraryArtifacts();
+		if (libraryProvider != null && artifacts.equals(libraryArtifacts)) {
+			return libraryProvider;
+		}
+		if (libraryProvider != null) {
+			libraryProvider.close();
+		}
+		libraryProvider = provider;
+		libraryArtifacts = artifacts;
+		return provider;
+	}
+
+	private File getMappingsFile(String version) {
+		return new File(mappingsDir, version + ".mappings");
+	}
+
+	private File getConstructorFile(String version) {
+		return new File(mappingsDir, version + ".constructors");
+	}
+
+	private File getHistoryFile() {
+		return new File(mappingsDir, "history.txt");
+	}
+
+	public String getVersion() {
+		return version;
+	}
+
+	public MappingPipeline setMappingsDir(File mappingsDir) {
+		this.mappingsDir = mappingsDir;
+		return this;
+	}
+
+	public MappingPipeline setMatchesDir(File matchesDir) {
+		this.matchesDir = matchesDir;
+		return this;
+	}
+
+	public MappingPipeline setLogsDir(File logsDir) {
+		this.logsDir = logsDir;
+		return this;
+	}
+
+	//Writes a diff report for each update when set
+	public MappingPipeline setDiffsDir(File diffsDir) {
+		this.diffsDir = diffsDir;
+		return this;
+	}
+
+	//null to not export the mapped jars
+	public MappingPipeline setJarsDir(File jarsDir) {
+		this.jarsDir = jarsDir;
+		return this;
+	}
+
+	//Runs every step in low memory mode, the mappings of each step are then read back from its output
+	public MappingPipeline lowMemory() {
+		lowMemory = true;
+		return this;
+	}
+
+	public MappingPipeline setThreads(int threads) {
+		Validate.isTrue(threads > 0);
+		this.threads = threads;
+		return this;
+	}
+
+	@Override
+	public void close() throws IOException {
+		steps.clear();
+		if (libraryProvider != null) {
+			libraryProvider.close();
+			libraryProvider = null;
+		}
+	}
+
+	private static class Step {
+		final File jar;
+		final Mappings mappings;
+		final ConstructorMapping constructors;
+
+		Step(File jar, Mappings mappings, ConstructorMapping constructors) {
+			this.jar = jar;
+			this.mappings = mappings;
+			this.constructors = constructors;
+		}
+	}
+
+}
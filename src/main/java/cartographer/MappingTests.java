@@ -22,14 +22,16 @@ public class MappingTests {
     public void test() throws Exception {
         System.out.println("Running tests on " + version);
         File minecraftJar = minecraftProvider.minecraftJar();
-        minecraftProvider.load();
+        //Only the library files are needed, they do not have to be opened
+        minecraftProvider.downloadLibraries();
         File tinyMappings = new File("mappings/" + version + ".tiny");
 
-        File testDir = new File("test");
+        //One dir per version so tests of different versions can run at the same time
+        File testDir = new File("test", version);
         if(testDir.exists()){
             testDir.delete();
         }
-        testDir.mkdir();
+        testDir.mkdirs();
 
 
         mappingErrros();
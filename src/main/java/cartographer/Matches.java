@@ -2,71 +2,339 @@ package cartographer;
 
 import com.google.common.collect.BiMap;
 import com.google.common.collect.HashBiMap;
-import org.apache.commons.lang3.tuple.Pair;
+import org.apache.commons.lang3.Validate;
 
-import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
-import java.nio.file.Files;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 
 //Based off https://github.com/sfPlayer1/Matcher/blob/master/src/matcher/serdes/MatchesIo.java
 public class Matches {
 
 	BiMap<String, String> classMatches = HashBiMap.create();
-	BiMap<String, String> methodMatches = HashBiMap.create();
-	BiMap<String, String> fieldMatches = HashBiMap.create();
-	BiMap<String, String> methodArgMatches = HashBiMap.create();
+	BiMap<MemberKey, MemberKey> methodMatches = HashBiMap.create();
+	BiMap<MemberKey, MemberKey> fieldMatches = HashBiMap.create();
+	BiMap<ArgKey, ArgKey> methodArgMatches = HashBiMap.create();
 
+	//Owners, names and descs repeat a lot, so they are shared between all of the keys
+	private final Interner interner = new Interner();
+
+	//Works directly on the mapped bytes of the file, only the names that end up in the tables are turned into strings
 	public Matches read(File file) throws IOException {
-		BufferedReader reader = Files.newBufferedReader(file.toPath());
-		String line;
-		Pair<String, String> currentClass = null;
-		Pair<String, String> currentMethod = null;
-
-		while ((line = reader.readLine()) != null) {
-			if (line.isEmpty()) {
-				continue;
-			}
-			if (line.startsWith("c\t")) {
-				int pos = line.indexOf('\t', 2);
-				if (pos == -1 || pos == 2 || pos + 1 == line.length()) {
+		ByteBuffer buffer;
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+		String oldClass = null;
+		String newClass = null;
+		MemberKey oldMethod = null;
+		MemberKey newMethod = null;
+
+		int limit = buffer.limit();
+		int start = 0;
+		while (start < limit) {
+			int end = start;
+			while (end < limit && buffer.get(end) != '\n') {
+				end++;
+			}
+			int next = end + 1;
+			if (end > start && buffer.get(end - 1) == '\r') {
+				end--;
+			}
+
+			if (end == start) {
+				//Empty line
+			} else if (startsWith(buffer, start, end, "c\t")) {
+				int pos = indexOf(buffer, '\t', start + 2, end);
+				if (pos == -1 || pos == start + 2 || pos + 1 == end) {
 					throw new IOException("invalid matches file");
 				}
-				String oldName = line.substring(2, pos).replaceAll(";", "").substring(1); //Removes some stuff we dont need
-				String newName = line.substring(pos + 1).replaceAll(";", "").substring(1);
-				currentClass = Pair.of(oldName, newName);
-				currentMethod = null;
-				classMatches.put(oldName, newName);
-
-			} else if (line.startsWith("\tm\t") || line.startsWith("\tf\t")) {
-				if (currentClass != null) {
-					int pos = line.indexOf('\t', 3);
-					if (pos == -1 || pos == 3 || pos + 1 == line.length()) {
+				oldClass = readClassName(buffer, start + 2, pos); //Removes some stuff we dont need
+				newClass = readClassName(buffer, pos + 1, end);
+				oldMethod = null;
+				newMethod = null;
+				classMatches.put(oldClass, newClass);
+
+			} else if (startsWith(buffer, start, end, "\tm\t") || startsWith(buffer, start, end, "\tf\t")) {
+				if (oldClass != null) {
+					int pos = indexOf(buffer, '\t', start + 3, end);
+					if (pos == -1 || pos == start + 3 || pos + 1 == end) {
 						throw new IOException("invalid matches file");
 					}
-					String oldName = line.substring(3, pos);
-					String newName = line.substring(pos + 1);
-					if (line.charAt(1) == 'm') {
-						methodMatches.put(currentClass.getLeft() + "." + oldName, currentClass.getRight() + "." + newName);
-						currentMethod = Pair.of(oldName, newName);
+					if (buffer.get(start + 1) == 'm') {
+						oldMethod = readMember(buffer, oldClass, start + 3, pos, true);
+						newMethod = readMember(buffer, newClass, pos + 1, end, true);
+						methodMatches.put(oldMethod, newMethod);
 					} else {
-						fieldMatches.put(currentClass.getLeft() + "." + oldName, currentClass.getRight() + "." + newName);
-						currentMethod = null;
+						fieldMatches.put(readMember(buffer, oldClass, start + 3, pos, false), readMember(buffer, newClass, pos + 1, end, false));
+						oldMethod = null;
+						newMethod = null;
 					}
 				}
-			} else if (line.startsWith("\t\tma\t")) {
-				if (currentMethod != null) {
-					int pos = line.indexOf('\t', 5);
-					if (pos == -1 || pos == 5 || pos + 1 == line.length()) {
+			} else if (startsWith(buffer, start, end, "\t\tma\t")) {
+				if (oldMethod != null) {
+					int pos = indexOf(buffer, '\t', start + 5, end);
+					if (pos == -1 || pos == start + 5 || pos + 1 == end) {
 						throw new IOException("invalid matches file");
 					}
-					int oldPos = Integer.parseInt(line.substring(5, pos));
-					int newPos = Integer.parseInt(line.substring(pos + 1));
-					methodArgMatches.put(currentClass.getLeft() + "." + currentMethod.getLeft() + "#" + oldPos, currentClass.getRight() + "." + currentMethod.getRight() + "#" + newPos);
+					methodArgMatches.put(new ArgKey(oldMethod, readInt(buffer, start + 5, pos)), new ArgKey(newMethod, readInt(buffer, pos + 1, end)));
 				}
 			}
+			start = next;
 		}
 		return this;
 	}
 
+	//Joins this (a to b) with the next version's matches (b to c) to give matches from a to c.
+	//Anything that is not matched in both is dropped, each table is one pass with a hash lookup into the next one.
+	public Matches compose(Matches next) {
+		Matches composed = new Matches();
+		for (Map.Entry<String, String> entry : classMatches.entrySet()) {
+			String match = next.classMatches.get(entry.getValue());
+			if (match != null) {
+				composed.classMatches.put(entry.getKey(), match);
+			}
+		}
+		compose(methodMatches, next.methodMatches, composed.methodMatches);
+		compose(fieldMatches, next.fieldMatches, composed.fieldMatches);
+		compose(methodArgMatches, next.methodArgMatches, composed.methodArgMatches);
+		return composed;
+	}
+
+	private static <K> void compose(BiMap<K, K> first, BiMap<K, K> second, BiMap<K, K> output) {
+		for (Map.Entry<K, K> entry : first.entrySet()) {
+			K match = second.get(entry.getValue());
+			if (match != null) {
+				output.put(entry.getKey(), match);
+			}
+		}
+	}
+
+	//Reads and composes a chain of matches files, each one going from the target version of the one before it
+	public static Matches readChain(List<File> files) throws IOException {
+		Validate.isTrue(!files.isEmpty());
+		Matches matches = new Matches().read(files.get(0));
+		for (int i = 1; i < files.size(); i++) {
+			matches = matches.compose(new Matches().read(files.get(i)));
+		}
+		return matches;
+	}
+
+	//Class names are stored as descriptors, Lname;
+	private String readClassName(ByteBuffer buffer, int start, int end) {
+		start++;
+		if (end > start && buffer.get(end - 1) == ';') {
+			end--;
+		}
+		if (indexOf(buffer, ';', start, end) != -1) {
+			return interner.intern(readString(buffer, start, end).replace(";", ""));
+		}
+		return interner.intern(buffer, start, end);
+	}
+
+	//Methods are stored as name + desc, fields as name;;desc
+	private MemberKey readMember(ByteBuffer buffer, String owner, int start, int end, boolean method) throws IOException {
+		int split;
+		int descStart;
+		if (method) {
+			split = indexOf(buffer, '(', start, end);
+			descStart = split;
+		} else {
+			split = indexOf(buffer, ';', start, end);
+			while (split != -1 && (split + 1 >= end || buffer.get(split + 1) != ';')) {
+				split = indexOf(buffer, ';', split + 1, end);
+			}
+			descStart = split + 2;
+		}
+		if (split == -1) {
+			throw new IOException("invalid matches file");
+		}
+		return new MemberKey(owner, interner.intern(buffer, start, split), interner.intern(buffer, descStart, end));
+	}
+
+	private static int readInt(ByteBuffer buffer, int start, int end) throws IOException {
+		int value = 0;
+		for (int i = start; i < end; i++) {
+			byte b = buffer.get(i);
+			if (b < '0' || b > '9') {
+				throw new IOException("invalid matches file");
+			}
+			value = value * 10 + (b - '0');
+		}
+		return value;
+	}
+
+	private static boolean startsWith(ByteBuffer buffer, int start, int end, String prefix) {
+		if (end - start < prefix.length()) {
+			return false;
+		}
+		for (int i = 0; i < prefix.length(); i++) {
+			if (buffer.get(start + i) != prefix.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static int indexOf(ByteBuffer buffer, char c, int start, int end) {
+		for (int i = start; i < end; i++) {
+			if (buffer.get(i) == c) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private static String readString(ByteBuffer buffer, int start, int end) {
+		byte[] bytes = new byte[end - start];
+		for (int i = 0; i < bytes.length; i++) {
+			bytes[i] = buffer.get(start + i);
+		}
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	//A method or field, the desc is the method desc or the field type
+	public static final class MemberKey {
+		final String owner;
+		final String name;
+		final String desc;
+		private final int hash;
+
+		public MemberKey(String owner, String name, String desc) {
+			this.owner = owner;
+			this.name = name;
+			this.desc = desc;
+			this.hash = Objects.hash(owner, name, desc);
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) return true;
+			if (o == null || getClass() != o.getClass()) return false;
+			MemberKey memberKey = (MemberKey) o;
+			return hash == memberKey.hash &&
+				owner.equals(memberKey.owner) &&
+				name.equals(memberKey.name) &&
+				desc.equals(memberKey.desc);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public String toString() {
+			return owner + "." + name + " " + desc;
+		}
+	}
+
+	public static final class ArgKey {
+		final MemberKey method;
+		final int index;
+
+		public ArgKey(MemberKey method, int index) {
+			this.method = method;
+			this.index = index;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) return true;
+			if (o == null || getClass() != o.getClass()) return false;
+			ArgKey argKey = (ArgKey) o;
+			return index == argKey.index && method.equals(argKey.method);
+		}
+
+		@Override
+		public int hashCode() {
+			return method.hashCode() * 31 + index;
+		}
+
+		@Override
+		public String toString() {
+			return method + "#" + index;
+		}
+	}
+
+	//Open addressing table that turns byte ranges into shared strings without creating a string for every lookup
+	private static class Interner {
+		private byte[][] keys = new byte[1024][];
+		private String[] values = new String[1024];
+		private int size;
+
+		String intern(ByteBuffer buffer, int start, int end) {
+			int hash = 1;
+			for (int i = start; i < end; i++) {
+				hash = 31 * hash + buffer.get(i);
+			}
+			int mask = keys.length - 1;
+			int slot = mix(hash) & mask;
+			while (keys[slot] != null) {
+				if (matches(keys[slot], buffer, start, end)) {
+					return values[slot];
+				}
+				slot = (slot + 1) & mask;
+			}
+			byte[] key = new byte[end - start];
+			for (int i = 0; i < key.length; i++) {
+				key[i] = buffer.get(start + i);
+			}
+			String value = new String(key, StandardCharsets.UTF_8);
+			insert(key, value, hash);
+			return value;
+		}
+
+		String intern(String string) {
+			byte[] key = string.getBytes(StandardCharsets.UTF_8);
+			return intern(ByteBuffer.wrap(key), 0, key.length);
+		}
+
+		private void insert(byte[] key, String value, int hash) {
+			if ((size + 1) * 2 > keys.length) {
+				byte[][] oldKeys = keys;
+				String[] oldValues = values;
+				keys = new byte[oldKeys.length * 2][];
+				values = new String[oldValues.length * 2];
+				size = 0;
+				for (int i = 0; i < oldKeys.length; i++) {
+					if (oldKeys[i] != null) {
+						insert(oldKeys[i], oldValues[i], Arrays.hashCode(oldKeys[i]));
+					}
+				}
+			}
+			int mask = keys.length - 1;
+			int slot = mix(hash) & mask;
+			while (keys[slot] != null) {
+				slot = (slot + 1) & mask;
+			}
+			keys[slot] = key;
+			values[slot] = value;
+			size++;
+		}
+
+		private static boolean matches(byte[] key, ByteBuffer buffer, int start, int end) {
+			if (key.length != end - start) {
+				return false;
+			}
+			for (int i = 0; i < key.length; i++) {
+				if (key[i] != buffer.get(start + i)) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		private static int mix(int hash) {
+			return hash ^ (hash >>> 16);
+		}
+	}
+
 }
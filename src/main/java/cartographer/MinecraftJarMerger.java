@@ -0,0 +1,158 @@
+package cartographer;
+
+import net.fabricmc.weave.merge.ClassMerger;
+import org.apache.commons.io.IOUtils;
+import org.objectweb.asm.AnnotationVisitor;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Opcodes;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+//Merges the client and server jars the same way as weave's JarMerger, but the jars are read through their zip index and the classes are merged on a pool of threads.
+//Entries are written in name order as they finish, so the output is the same on every run and only a window of entries is held in memory.
+public class MinecraftJarMerger {
+
+	private static final String SIDE_DESCRIPTOR = "Lnet/fabricmc/api/Environment;";
+	private static final String SIDE_TYPE_DESCRIPTOR = "Lnet/fabricmc/api/EnvType;";
+
+	private final int threads;
+
+	public MinecraftJarMerger(int threads) {
+		this.threads = threads;
+	}
+
+	public void merge(File clientJar, File serverJar, File outputJar) throws IOException {
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try (ZipFile client = new ZipFile(clientJar);
+		     ZipFile server = new ZipFile(serverJar);
+		     ZipOutputStream zipOutputStream = new ZipOutputStream(new BufferedOutputStream(Files.newOutputStream(outputJar.toPath()), 1 << 16))) {
+			Set<String> names = new TreeSet<>();
+			addEntries(client, names);
+			addEntries(server, names);
+
+			Deque<PendingEntry> pending = new ArrayDeque<>();
+			for (String name : names) {
+				ZipEntry clientEntry = client.getEntry(name);
+				ZipEntry serverEntry = server.getEntry(name);
+				Future<byte[]> data = executor.submit(() -> mergeEntry(name, client, clientEntry, server, serverEntry));
+				pending.add(new PendingEntry(name, clientEntry != null ? clientEntry : serverEntry, data));
+				if (pending.size() >= threads * 16) {
+					write(pending.poll(), zipOutputStream);
+				}
+			}
+			while (!pending.isEmpty()) {
+				write(pending.poll(), zipOutputStream);
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private static void addEntries(ZipFile zipFile, Set<String> names) {
+		Enumeration<? extends ZipEntry> entries = zipFile.entries();
+		while (entries.hasMoreElements()) {
+			ZipEntry entry = entries.nextElement();
+			//The merged classes no longer match the signatures
+			if (!entry.isDirectory() && !JarExporter.isSignature(entry.getName())) {
+				names.add(entry.getName());
+			}
+		}
+	}
+
+	//Returns null when the entry should be left out
+	private static byte[] mergeEntry(String name, ZipFile client, ZipEntry clientEntry, ZipFile server, ZipEntry serverEntry) throws IOException {
+		boolean isClass = name.endsWith(".class");
+		//Only used to find the libraries bundled in the server jar, every class that is in one jar gets its side like in weave
+		boolean isMinecraft = name.startsWith("net/minecraft/") || !name.contains("/");
+		if (clientEntry != null && serverEntry != null) {
+			byte[] clientData = read(client, clientEntry);
+			if (!isClass) {
+				return clientData; //Same as weave, the client copy wins
+			}
+			byte[] serverData = read(server, serverEntry);
+			if (Arrays.equals(clientData, serverData)) {
+				return clientData;
+			}
+			return new ClassMerger().merge(clientData, serverData);
+		}
+		if (clientEntry != null) {
+			byte[] data = read(client, clientEntry);
+			return isClass ? addSide(data, "CLIENT") : data;
+		}
+		if (isClass && !isMinecraft) {
+			return null; //Libraries that are bundled in the server jar
+		}
+		byte[] data = read(server, serverEntry);
+		return isClass ? addSide(data, "SERVER") : data;
+	}
+
+	private static byte[] read(ZipFile zipFile, ZipEntry entry) throws IOException {
+		try (InputStream inputStream = zipFile.getInputStream(entry)) {
+			return IOUtils.toByteArray(inputStream);
+		}
+	}
+
+	//Marks a class that is only in one of the jars
+	private static byte[] addSide(byte[] data, String side) {
+		ClassReader reader = new ClassReader(data);
+		ClassWriter writer = new ClassWriter(0);
+		reader.accept(new ClassVisitor(Opcodes.ASM6, writer) {
+			@Override
+			public void visitEnd() {
+				AnnotationVisitor annotationVisitor = cv.visitAnnotation(SIDE_DESCRIPTOR, true);
+				annotationVisitor.visitEnum("value", SIDE_TYPE_DESCRIPTOR, side);
+				annotationVisitor.visitEnd();
+				super.visitEnd();
+			}
+		}, 0);
+		return writer.toByteArray();
+	}
+
+	private static void write(PendingEntry entry, ZipOutputStream zipOutputStream) throws IOException {
+		byte[] data;
+		try {
+			data = entry.data.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while merging " + entry.name, e);
+		} catch (ExecutionException e) {
+			throw new IOException("Failed to merge " + entry.name, e.getCause());
+		}
+		if (data == null) {
+			return;
+		}
+		ZipEntry zipEntry = new ZipEntry(entry.name);
+		//Keeps the time from the input jar so the output does not change between runs
+		zipEntry.setTime(entry.source.getTime());
+		zipOutputStream.putNextEntry(zipEntry);
+		zipOutputStream.write(data);
+		zipOutputStream.closeEntry();
+	}
+
+	private static class PendingEntry {
+		final String name;
+		final ZipEntry source;
+		final Future<byte[]> data;
+
+		PendingEntry(String name, ZipEntry source, Future<byte[]> data) {
+			this.name = name;
+			this.source = source;
+			this.data = data;
+		}
+	}
+
+}
@@ -3,55 +3,134 @@ package cartographer;
 import com.google.gson.Gson;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
-import net.fabricmc.weave.merge.JarMerger;
 import org.apache.commons.io.FileUtils;
-import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.Validate;
 
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 public class MinecraftLibProvider extends LibraryProvider {
 
+	//Bump when the merged output changes, so older merges in the cache are not used
+	public static final String MERGER_VERSION = "cartographer-2";
+
+	public static final String DEFAULT_MANIFEST_URL = "https://launchermeta.mojang.com/mc/game/version_manifest.json";
+
 	public final String mcVersion;
 
 	public File store;
 
+	//Can point at a local file: url, or at a local http server for testing
+	private String manifestUrl = System.getProperty("cartographer.manifestUrl", DEFAULT_MANIFEST_URL);
+	private File cacheDir = new File("mcjars");
+	private int downloadThreads = 4;
+
 	private List<File> libs;
+	private JsonObject versionData;
 
 	public MinecraftLibProvider(String mcVersion) {
 		this.mcVersion = mcVersion;
 		this.store = new File("mclibs/" + mcVersion);
 	}
 
+	public MinecraftLibProvider setManifestUrl(String manifestUrl) {
+		this.manifestUrl = manifestUrl;
+		this.versionData = null;
+		return this;
+	}
+
+	public MinecraftLibProvider setCacheDir(File cacheDir) {
+		this.cacheDir = cacheDir;
+		return this;
+	}
+
+	public MinecraftLibProvider setDownloadThreads(int downloadThreads) {
+		Validate.isTrue(downloadThreads > 0);
+		this.downloadThreads = downloadThreads;
+		return this;
+	}
+
 	@Override
 	void getLibs(List<File> fileList) {
 		fileList.addAll(libs);
 	}
 
 	@Override
-	public void load() throws IOException {
+	public synchronized void load() throws IOException {
+		downloadLibraries();
+		super.load();
+	}
+
+	//Only downloads the libraries, load also opens and indexes them
+	public synchronized void downloadLibraries() throws IOException {
+		if (libs != null) {
+			return;
+		}
 		JsonObject versionObject = getVersionData();
 		JsonArray libArray = versionObject.get("libraries").getAsJsonArray();
-		this.libs = new ArrayList<>();
-		for (int i = 0; i < libArray.size(); i++) {
-			JsonObject lib = libArray.get(i).getAsJsonObject();
-			JsonObject artifact = lib.get("downloads").getAsJsonObject().get("artifact").getAsJsonObject();
-			String path = artifact.get("path").getAsString();
-			File output = new File(store, path.substring(path.lastIndexOf("/")));
-			if (!output.exists()) {
-				FileUtils.copyURLToFile(new URL(artifact.get("url").getAsString()), output);
+		List<File> libs = new ArrayList<>();
+		ExecutorService executor = Executors.newFixedThreadPool(downloadThreads);
+		try {
+			List<Future<?>> downloads = new ArrayList<>();
+			for (int i = 0; i < libArray.size(); i++) {
+				JsonObject downloadsObject = libArray.get(i).getAsJsonObject().getAsJsonObject("downloads");
+				if (downloadsObject == null || !downloadsObject.has("artifact")) {
+					continue; //Natives only
+				}
+				JsonObject artifact = downloadsObject.getAsJsonObject("artifact");
+				String path = artifact.get("path").getAsString();
+				File output = new File(store, path.substring(path.lastIndexOf("/")));
+				if (libs.contains(output)) {
+					continue; //The same artifact can be listed more than once under different rules
+				}
+				downloads.add(executor.submit(() -> {
+					download(artifact.get("url").getAsString(), output, getSha1(artifact));
+					return null;
+				}));
+				libs.add(output);
 			}
+			for (Future<?> download : downloads) {
+				download.get();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while downloading libraries", e);
+		} catch (ExecutionException e) {
+			throw new IOException("Failed to download libraries", e.getCause());
+		} finally {
+			executor.shutdownNow();
+		}
+		this.libs = libs;
+	}
 
-			libs.add(output);
+	@Override
+	public synchronized void close() throws IOException {
+		super.close();
+		libs = null;
+	}
+
+	//The path and hash of every library, versions with the same list can share a provider
+	public List<String> getLibraryArtifacts() throws IOException {
+		JsonArray libArray = getVersionData().get("libraries").getAsJsonArray();
+		List<String> artifacts = new ArrayList<>();
+		for (int i = 0; i < libArray.size(); i++) {
+			JsonObject downloadsObject = libArray.get(i).getAsJsonObject().getAsJsonObject("downloads");
+			if (downloadsObject != null && downloadsObject.has("artifact")) {
+				JsonObject artifact = downloadsObject.getAsJsonObject("artifact");
+				artifacts.add(artifact.get("path").getAsString() + "@" + getSha1(artifact));
+			}
 		}
-		super.load();
+		return artifacts;
 	}
 
 	//Gets a merged minecraft jar
@@ -61,43 +140,90 @@ public class MinecraftLibProvider extends LibraryProvider {
 		JsonObject clientObject = downloadsArray.getAsJsonObject("client");
 		JsonObject serverObject = downloadsArray.getAsJsonObject("server");
 
-		File clientJar = new File("mcjars/" + mcVersion + ".client.jar");
-		File serverJar = new File("mcjars/" + mcVersion + ".server.jar");
-		File mergedJar = new File("mcjars/" + mcVersion + ".merged.jar");
+		File clientJar = new File(cacheDir, mcVersion + ".client.jar");
+		File serverJar = new File(cacheDir, mcVersion + ".server.jar");
 
-		if(!clientJar.exists()){
-			System.out.println("Downloading: " + clientObject.get("url").getAsString());
-			FileUtils.copyURLToFile(new URL(clientObject.get("url").getAsString()), clientJar);
-		}
-		
-		if(!serverJar.exists()){
-			System.out.println("Downloading: " + serverObject.get("url").getAsString());
-			FileUtils.copyURLToFile(new URL(serverObject.get("url").getAsString()), serverJar);
-		}
+		download(clientObject.get("url").getAsString(), clientJar, getSha1(clientObject));
+		download(serverObject.get("url").getAsString(), serverJar, getSha1(serverObject));
 
-		if(!mergedJar.exists()){
+		//Keyed by the inputs rather than the version name, so a changed jar or merger never picks up an old merge
+		String key = ArtifactCache.key(hashOf(clientJar, clientObject), hashOf(serverJar, serverObject), MERGER_VERSION);
+		File mergedJar = new ArtifactCache(new File(cacheDir, "merged")).get(key, ".jar", output -> {
 			System.out.println("Merging jars");
-			FileInputStream clientJarStream = new FileInputStream(clientJar);
-			FileInputStream serverJarStream = new FileInputStream(serverJar);
-			FileOutputStream mergedJarStream = new FileOutputStream(mergedJar);
+			new MinecraftJarMerger(Runtime.getRuntime().availableProcessors()).merge(clientJar, serverJar, output);
+		});
 
-			JarMerger jarMerger = new JarMerger(clientJarStream, serverJarStream, mergedJarStream);
-			jarMerger.merge();
-			jarMerger.close();
+		Validate.isTrue(mergedJar.exists());
+		return mergedJar;
+	}
 
-			clientJarStream.close();
-			serverJarStream.close();
-			mergedJarStream.close();
+	//Downloads to a temp file of its own and only moves it in place once the hash matches, an existing file with the wrong hash is downloaded again
+	private static void download(String url, File output, String sha1) throws IOException {
+		if (output.exists() && (sha1 == null || Util.checkHash(output, sha1))) {
+			return;
 		}
+		System.out.println("Downloading: " + url);
+		Files.createDirectories(output.getAbsoluteFile().getParentFile().toPath());
+		ArtifactCache.writeAtomically(output, tempFile -> {
+			for (int attempt = 1; ; attempt++) {
+				FileUtils.copyURLToFile(new URL(url), tempFile);
+				if (sha1 == null || Util.checkHash(tempFile, sha1)) {
+					return;
+				}
+				if (attempt == 3) {
+					throw new IOException("Hash mismatch for " + url + ", expected " + sha1);
+				}
+				System.out.println("Hash mismatch for " + url + ", retrying");
+			}
+		});
+	}
 
-		Validate.isTrue(mergedJar.exists());
-		return mergedJar;
+	private static String getSha1(JsonObject download) {
+		return download.has("sha1") ? download.get("sha1").getAsString() : null;
 	}
 
+	private static String hashOf(File file, JsonObject download) throws IOException {
+		String sha1 = getSha1(download);
+		if (sha1 != null) {
+			return sha1.toLowerCase(Locale.ROOT); //Already checked against the file by download
+		}
+		try {
+			return Util.getSha1(file);
+		} catch (Exception e) {
+			throw new IOException("Failed to hash " + file.getName(), e);
+		}
+	}
 
+	//The version json never changes, so it is kept on disk. The cached manifest is only refreshed when it does not know the version.
 	private JsonObject getVersionData() throws IOException {
-		String versionManifest = IOUtils.toString(new URL("https://launchermeta.mojang.com/mc/game/version_manifest.json"), StandardCharsets.UTF_8);
-		JsonObject manifestObject = new Gson().fromJson(versionManifest, JsonObject.class);
+		if (versionData != null) {
+			return versionData;
+		}
+		File versionFile = new File(cacheDir, mcVersion + ".json");
+		if (!versionFile.exists()) {
+			Files.createDirectories(cacheDir.toPath());
+			//Every provider shares the manifest, so only one of them fetches at a time. Both files are moved into place once complete
+			ArtifactCache.withLock(new File(cacheDir, "version_manifest.lock"), () -> {
+				if (versionFile.exists()) {
+					return null;
+				}
+				File manifestFile = new File(cacheDir, "version_manifest.json");
+				String versionURL = manifestFile.exists() ? findVersionUrl(readJson(manifestFile)) : null;
+				if (versionURL == null) {
+					ArtifactCache.writeAtomically(manifestFile, output -> FileUtils.copyURLToFile(new URL(manifestUrl), output));
+					versionURL = findVersionUrl(readJson(manifestFile));
+				}
+				Validate.notNull(versionURL, "Failed to find version " + mcVersion + " in the manifest");
+				URL url = new URL(new URL(manifestUrl), versionURL);
+				ArtifactCache.writeAtomically(versionFile, output -> FileUtils.copyURLToFile(url, output));
+				return null;
+			});
+		}
+		versionData = readJson(versionFile);
+		return versionData;
+	}
+
+	private String findVersionUrl(JsonObject manifestObject) {
 		JsonArray versions = manifestObject.getAsJsonArray("versions");
 		String versionURL = null;
 		for (int i = 0; i < versions.size(); i++) {
@@ -106,9 +232,10 @@ public class MinecraftLibProvider extends LibraryProvider {
 				versionURL = versionObject.get("url").getAsString();
 			}
 		}
-		Validate.notNull(versionURL);
-		String versionData = IOUtils.toString(new URL(versionURL), StandardCharsets.UTF_8);
-		JsonObject versionObject = new Gson().fromJson(versionData, JsonObject.class);
-		return versionObject;
+		return versionURL;
+	}
+
+	private static JsonObject readJson(File file) throws IOException {
+		return new Gson().fromJson(FileUtils.readFileToString(file, StandardCharsets.UTF_8), JsonObject.class);
 	}
 }
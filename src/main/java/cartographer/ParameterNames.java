@@ -0,0 +1,105 @@
+package cartographer;
+
+import cuchaz.enigma.mapping.ClassMapping;
+import cuchaz.enigma.mapping.LocalVariableMapping;
+import cuchaz.enigma.mapping.Mappings;
+import cuchaz.enigma.mapping.MethodMapping;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+import org.objectweb.asm.tree.*;
+
+import java.util.*;
+
+//Tiny v1 has no parameter names, so they are put in to the remapped classes from the enigma mappings like Deobfuscator.writeJar did.
+//Existing local variable entries for the arguments are renamed, methods without them get an entry per named argument covering the whole method.
+class ParameterNames {
+
+	//Remapped class name to the remapped method name and desc to the names by argument index
+	private final Map<String, Map<String, String[]>> names = new HashMap<>();
+
+	ParameterNames(Mappings mappings) {
+		Map<String, ClassMapping> classMappings = new HashMap<>();
+		Map<String, String> deobfNames = new HashMap<>();
+		for (ClassMapping classMapping : mappings.classes()) {
+			String deobfName = classMapping.getDeobfName() != null ? classMapping.getDeobfName() : classMapping.getObfFullName();
+			TinyWriter.index(classMapping, classMapping.getObfFullName(), deobfName, classMappings, deobfNames);
+		}
+		for (Map.Entry<String, ClassMapping> entry : classMappings.entrySet()) {
+			String owner = TinyWriter.getDeobfName(entry.getKey(), deobfNames);
+			for (MethodMapping methodMapping : entry.getValue().methods()) {
+				List<LocalVariableMapping> arguments = new ArrayList<>();
+				methodMapping.arguments().forEach(arguments::add);
+				if (arguments.isEmpty()) {
+					continue;
+				}
+				int count = 0;
+				for (LocalVariableMapping argument : arguments) {
+					count = Math.max(count, argument.getIndex() + 1);
+				}
+				String[] argumentNames = new String[count];
+				for (LocalVariableMapping argument : arguments) {
+					argumentNames[argument.getIndex()] = argument.getName();
+				}
+				//Methods without a new name, such as constructors, keep the obf one
+				String name = methodMapping.getDeobfName() != null ? methodMapping.getDeobfName() : methodMapping.getObfName();
+				String desc = ClassFingerprint.remapDesc(methodMapping.getObfDesc().toString(), className -> TinyWriter.getDeobfName(className, deobfNames));
+				names.computeIfAbsent(owner, s -> new HashMap<>()).put(name + desc, argumentNames);
+			}
+		}
+	}
+
+	//Returns the class with its argument names, or the same bytes when it has none. Safe to call from more than one thread
+	byte[] apply(String className, byte[] bytes) {
+		Map<String, String[]> methodNames = names.get(className);
+		if (methodNames == null) {
+			return bytes;
+		}
+		ClassNode classNode = new ClassNode();
+		new ClassReader(bytes).accept(classNode, 0);
+		for (MethodNode methodNode : classNode.methods) {
+			String[] argumentNames = methodNames.get(methodNode.name + methodNode.desc);
+			if (argumentNames != null && methodNode.instructions.size() > 0) {
+				apply(methodNode, argumentNames);
+			}
+		}
+		ClassWriter writer = new ClassWriter(0);
+		classNode.accept(writer);
+		return writer.toByteArray();
+	}
+
+	private static void apply(MethodNode methodNode, String[] argumentNames) {
+		if (methodNode.localVariables == null) {
+			methodNode.localVariables = new ArrayList<>();
+		}
+		LabelNode start = null;
+		LabelNode end = null;
+		Type[] argumentTypes = Type.getArgumentTypes(methodNode.desc);
+		int slot = (methodNode.access & Opcodes.ACC_STATIC) != 0 ? 0 : 1;
+		for (int arg = 0; arg < argumentTypes.length; arg++) {
+			String name = arg < argumentNames.length ? argumentNames[arg] : null;
+			if (name != null) {
+				boolean found = false;
+				for (LocalVariableNode localVariable : methodNode.localVariables) {
+					if (localVariable.index == slot) {
+						localVariable.name = name;
+						found = true;
+					}
+				}
+				if (!found) {
+					if (start == null) {
+						//Labels do not change the code, so the existing frames and offsets stay valid
+						start = new LabelNode();
+						end = new LabelNode();
+						methodNode.instructions.insert(start);
+						methodNode.instructions.add(end);
+					}
+					methodNode.localVariables.add(new LocalVariableNode(name, argumentTypes[arg].getDescriptor(), null, start, end, slot));
+				}
+			}
+			slot += argumentTypes[arg].getSize();
+		}
+	}
+
+}
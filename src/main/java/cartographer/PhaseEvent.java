@@ -0,0 +1,115 @@
+package cartographer;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+//The cartographer.Phase jfr event. jdk.jfr is not there on older java 8 builds, so the event type is made through its EventFactory with reflection
+//and the project still compiles without it. create returns null when the jvm has no jfr.
+class PhaseEvent {
+
+	private static final Factory FACTORY = Factory.create();
+
+	private final Object event;
+
+	private PhaseEvent(Object event) {
+		this.event = event;
+	}
+
+	static PhaseEvent create() {
+		if (FACTORY == null) {
+			return null;
+		}
+		try {
+			return new PhaseEvent(FACTORY.newEvent.invoke(FACTORY.factory));
+		} catch (ReflectiveOperationException e) {
+			return null;
+		}
+	}
+
+	void begin() {
+		invoke(FACTORY.begin);
+	}
+
+	void end() {
+		invoke(FACTORY.end);
+	}
+
+	boolean shouldCommit() {
+		return (Boolean) invoke(FACTORY.shouldCommit);
+	}
+
+	//In the same order as the fields given to the factory
+	void commit(String phase, long cpuTime, long allocatedBytes) {
+		invoke(FACTORY.set, 0, phase);
+		invoke(FACTORY.set, 1, cpuTime);
+		invoke(FACTORY.set, 2, allocatedBytes);
+		invoke(FACTORY.commit);
+	}
+
+	private Object invoke(Method method, Object... args) {
+		try {
+			return method.invoke(event, args);
+		} catch (ReflectiveOperationException e) {
+			throw new RuntimeException("Failed to call " + method.getName() + " on the jfr event", e);
+		}
+	}
+
+	private static class Factory {
+		Object factory;
+		Method newEvent;
+		Method begin;
+		Method end;
+		Method shouldCommit;
+		Method set;
+		Method commit;
+
+		static Factory create() {
+			try {
+				Class<?> annotationElement = Class.forName("jdk.jfr.AnnotationElement");
+				Class<?> valueDescriptor = Class.forName("jdk.jfr.ValueDescriptor");
+				Class<?> eventFactory = Class.forName("jdk.jfr.EventFactory");
+				Class<?> eventClass = Class.forName("jdk.jfr.Event");
+				Constructor<?> annotation = annotationElement.getConstructor(Class.class, Object.class);
+				Constructor<?> field = valueDescriptor.getConstructor(Class.class, String.class, List.class);
+
+				List<Object> annotations = Arrays.asList(
+					annotation.newInstance(annotationClass("jdk.jfr.Name"), "cartographer.Phase"),
+					annotation.newInstance(annotationClass("jdk.jfr.Label"), "Cartographer Phase"),
+					annotation.newInstance(annotationClass("jdk.jfr.Category"), new String[] {"Cartographer"}),
+					annotation.newInstance(annotationClass("jdk.jfr.Description"), "A phase of a mapping run")
+				);
+				List<Object> fields = new ArrayList<>();
+				fields.add(field.newInstance(String.class, "phase", Collections.singletonList(annotation.newInstance(annotationClass("jdk.jfr.Label"), "Phase"))));
+				fields.add(field.newInstance(long.class, "cpuTime", Arrays.asList(
+					annotation.newInstance(annotationClass("jdk.jfr.Label"), "CPU Time"),
+					annotation.newInstance(annotationClass("jdk.jfr.Timespan"), "NANOSECONDS"))));
+				fields.add(field.newInstance(long.class, "allocatedBytes", Arrays.asList(
+					annotation.newInstance(annotationClass("jdk.jfr.Label"), "Allocated"),
+					annotation.newInstance(annotationClass("jdk.jfr.DataAmount"), "BYTES"))));
+
+				Factory factory = new Factory();
+				factory.factory = eventFactory.getMethod("create", List.class, List.class).invoke(null, annotations, fields);
+				factory.newEvent = eventFactory.getMethod("newEvent");
+				factory.begin = eventClass.getMethod("begin");
+				factory.end = eventClass.getMethod("end");
+				factory.shouldCommit = eventClass.getMethod("shouldCommit");
+				factory.set = eventClass.getMethod("set", int.class, Object.class);
+				factory.commit = eventClass.getMethod("commit");
+				return factory;
+			} catch (ReflectiveOperationException | LinkageError e) {
+				return null;
+			}
+		}
+
+		@SuppressWarnings("unchecked")
+		private static Class<? extends Annotation> annotationClass(String name) throws ClassNotFoundException {
+			return (Class<? extends Annotation>) Class.forName(name);
+		}
+	}
+
+}
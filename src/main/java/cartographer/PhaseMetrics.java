@@ -0,0 +1,149 @@
+package cartographer;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.lang.management.ThreadMXBean;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+//Wall time, cpu time and allocated bytes for each phase of a run, each phase is also sent to jfr as a cartographer.Phase event.
+//Cpu time is for the whole process and allocations are for every thread, so the parallel phases are counted properly.
+//Allocations made by threads that finish inside a phase are not seen.
+public class PhaseMetrics {
+
+	private final OperatingSystemMXBean osBean = ManagementFactory.getOperatingSystemMXBean();
+	private final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+
+	private final Map<String, Phase> phases = new LinkedHashMap<>();
+
+	public Timer start(String name) {
+		return new Timer(name);
+	}
+
+	//In the order the phases were first ran, a phase that is ran more than once is added up
+	public Collection<Phase> getPhases() {
+		return Collections.unmodifiableCollection(phases.values());
+	}
+
+	public Phase getPhase(String name) {
+		return phases.get(name);
+	}
+
+	public void reset() {
+		phases.clear();
+	}
+
+	public String report() {
+		StringBuilder builder = new StringBuilder();
+		builder.append(String.format("%-24s %10s %10s %12s%n", "Phase", "Wall ms", "CPU ms", "Alloc MB"));
+		for (Phase phase : phases.values()) {
+			builder.append(String.format("%-24s %10d %10d %12.1f%n", phase.name,
+				TimeUnit.NANOSECONDS.toMillis(phase.wallNanos),
+				TimeUnit.NANOSECONDS.toMillis(phase.cpuNanos),
+				phase.allocatedBytes / (1024D * 1024D)));
+		}
+		return builder.toString();
+	}
+
+	private synchronized void record(String name, long wallNanos, long cpuNanos, long allocatedBytes) {
+		Phase phase = phases.computeIfAbsent(name, Phase::new);
+		phase.count++;
+		phase.wallNanos += wallNanos;
+		phase.cpuNanos += cpuNanos;
+		phase.allocatedBytes += allocatedBytes;
+	}
+
+	private long getCpuTime() {
+		if (osBean instanceof com.sun.management.OperatingSystemMXBean) {
+			return ((com.sun.management.OperatingSystemMXBean) osBean).getProcessCpuTime();
+		}
+		return threadBean.isCurrentThreadCpuTimeSupported() ? threadBean.getCurrentThreadCpuTime() : 0;
+	}
+
+	//Thread id to allocated bytes, empty when the jvm cannot tell us
+	private Map<Long, Long> getAllocatedBytes() {
+		Map<Long, Long> allocated = new HashMap<>();
+		if (threadBean instanceof com.sun.management.ThreadMXBean) {
+			com.sun.management.ThreadMXBean sunThreadBean = (com.sun.management.ThreadMXBean) threadBean;
+			if (sunThreadBean.isThreadAllocatedMemorySupported() && sunThreadBean.isThreadAllocatedMemoryEnabled()) {
+				long[] ids = sunThreadBean.getAllThreadIds();
+				long[] bytes = sunThreadBean.getThreadAllocatedBytes(ids);
+				for (int i = 0; i < ids.length; i++) {
+					if (bytes[i] >= 0) {
+						allocated.put(ids[i], bytes[i]);
+					}
+				}
+			}
+		}
+		return allocated;
+	}
+
+	public class Timer implements AutoCloseable {
+		private final String name;
+		private final long startWall;
+		private final long startCpu;
+		private final Map<Long, Long> startAllocated;
+		private final PhaseEvent event;
+
+		private Timer(String name) {
+			this.name = name;
+			this.startAllocated = getAllocatedBytes();
+			this.startCpu = getCpuTime();
+			event = PhaseEvent.create();
+			if (event != null) {
+				event.begin();
+			}
+			this.startWall = System.nanoTime();
+		}
+
+		@Override
+		public void close() {
+			long wall = System.nanoTime() - startWall;
+			long cpu = getCpuTime() - startCpu;
+			long allocated = 0;
+			for (Map.Entry<Long, Long> entry : getAllocatedBytes().entrySet()) {
+				allocated += entry.getValue() - startAllocated.getOrDefault(entry.getKey(), 0L);
+			}
+			if (event != null) {
+				event.end();
+				if (event.shouldCommit()) {
+					event.commit(name, cpu, allocated);
+				}
+			}
+			record(name, wall, cpu, allocated);
+		}
+	}
+
+	public static class Phase {
+		final String name;
+		int count;
+		long wallNanos;
+		long cpuNanos;
+		long allocatedBytes;
+
+		Phase(String name) {
+			this.name = name;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public int getCount() {
+			return count;
+		}
+
+		public long getWallNanos() {
+			return wallNanos;
+		}
+
+		public long getCpuNanos() {
+			return cpuNanos;
+		}
+
+		public long getAllocatedBytes() {
+			return allocatedBytes;
+		}
+	}
+
+}
@@ -0,0 +1,127 @@
+package cartographer;
+
+import com.strobel.decompiler.languages.java.ast.CompilationUnit;
+import cuchaz.enigma.Deobfuscator;
+import cuchaz.enigma.mapping.ClassMapping;
+import cuchaz.enigma.mapping.entry.ClassEntry;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+//Decompiles the top level classes on a pool of threads. The Deobfuscator is not thread safe, getSourceTree sets its type loader on the shared
+//decompiler settings and the translators cache in plain maps, so every worker has its own Deobfuscator over the same parsed jar and mappings.
+public class SourceExporter {
+
+	private static final long PROGRESS_INTERVAL = TimeUnit.MILLISECONDS.toNanos(500);
+
+	private final Deobfuscator deobfuscator;
+	private final int threads;
+
+	private final AtomicInteger done = new AtomicInteger();
+	private final AtomicInteger failed = new AtomicInteger();
+	private final AtomicLong lastProgress = new AtomicLong();
+	private int total;
+
+	public SourceExporter(Deobfuscator deobfuscator, int threads) {
+		this.deobfuscator = deobfuscator;
+		this.threads = threads;
+	}
+
+	public void export(File sourcesDir) {
+		List<ClassEntry> classEntries = new ArrayList<>();
+		for (ClassEntry classEntry : deobfuscator.getJarIndex().getObfClassEntries()) {
+			//Inner classes are written with their outer class
+			if (!classEntry.isInnerClass()) {
+				classEntries.add(classEntry);
+			}
+		}
+		classEntries.sort(Comparator.comparing(ClassEntry::getName));
+		total = classEntries.size();
+		Queue<ClassEntry> queue = new ConcurrentLinkedQueue<>(classEntries);
+
+		//Made here rather than on the workers, as setMappings drops the mappings that do not match the jar
+		int workers = Math.max(1, Math.min(threads, classEntries.size()));
+		List<Deobfuscator> deobfuscators = new ArrayList<>();
+		deobfuscators.add(deobfuscator);
+		while (deobfuscators.size() < workers) {
+			Deobfuscator workerDeobfuscator = new Deobfuscator(deobfuscator.getJar());
+			workerDeobfuscator.setMappings(deobfuscator.getMappings());
+			deobfuscators.add(workerDeobfuscator);
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(workers);
+		for (Deobfuscator workerDeobfuscator : deobfuscators) {
+			executor.execute(() -> {
+				ClassEntry classEntry;
+				//Stops taking classes once shutdownNow interrupts the worker
+				while (!Thread.currentThread().isInterrupted() && (classEntry = queue.poll()) != null) {
+					export(workerDeobfuscator, classEntry, sourcesDir);
+				}
+			});
+		}
+		executor.shutdown();
+		try {
+			executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+		} catch (InterruptedException e) {
+			executor.shutdownNow();
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("Interrupted while writing sources", e);
+		}
+		printProgress();
+		System.out.println();
+		if (failed.get() != 0) {
+			System.out.println("Failed to decompile " + failed.get() + " classes");
+		}
+	}
+
+	private void export(Deobfuscator deobfuscator, ClassEntry classEntry, File sourcesDir) {
+		try {
+			CompilationUnit sourceTree = deobfuscator.getSourceTree(classEntry.getName());
+			String source = deobfuscator.getSource(sourceTree);
+			File file = new File(sourcesDir, getDeobfName(classEntry) + ".java");
+			file.getParentFile().mkdirs();
+			Files.write(file.toPath(), source.getBytes(StandardCharsets.UTF_8));
+		} catch (Throwable e) {
+			//Procyon can throw errors such as StackOverflowError on deep classes, they would otherwise end the task without counting the class
+			failed.incrementAndGet();
+			System.out.println();
+			System.out.println("Failed to decompile " + classEntry.getName());
+			e.printStackTrace(System.out);
+		} finally {
+			done.incrementAndGet();
+		}
+
+		//Only one thread prints, and not more than twice a second
+		long now = System.nanoTime();
+		long last = lastProgress.get();
+		if (now - last > PROGRESS_INTERVAL && lastProgress.compareAndSet(last, now)) {
+			printProgress();
+		}
+	}
+
+	private String getDeobfName(ClassEntry classEntry) {
+		ClassMapping classMapping = deobfuscator.getMappings().getClassByObf(classEntry);
+		if (classMapping == null || classMapping.getDeobfName() == null) {
+			return classEntry.getName();
+		}
+		return classMapping.getDeobfName();
+	}
+
+	private synchronized void printProgress() {
+		int numDone = done.get();
+		int percentage = total == 0 ? 100 : (numDone * 100) / total;
+		System.out.print("\r" + numDone + "/" + total + "\t\t" + percentage + "%");
+	}
+
+}
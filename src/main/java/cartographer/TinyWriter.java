@@ -0,0 +1,106 @@
+package cartographer;
+
+import cuchaz.enigma.mapping.ClassMapping;
+import cuchaz.enigma.mapping.FieldMapping;
+import cuchaz.enigma.mapping.Mappings;
+import cuchaz.enigma.mapping.MethodMapping;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+//Writes tiny (v1) mappings straight from the in memory mappings, so the jar does not need to be indexed again.
+//Like weave's tinyify every class in the jar gets a CLASS line, classes without a mapping (anonymous inner classes) take the name of their outer class.
+public class TinyWriter {
+
+	public static void write(Mappings mappings, Collection<String> classNames, File file, String fromNamespace, String toNamespace) throws IOException {
+		if (file.getParentFile() != null) {
+			file.getParentFile().mkdirs();
+		}
+		Map<String, ClassMapping> classMappings = new HashMap<>();
+		Map<String, String> deobfNames = new HashMap<>();
+		for (ClassMapping classMapping : mappings.classes()) {
+			String deobfName = classMapping.getDeobfName() != null ? classMapping.getDeobfName() : classMapping.getObfFullName();
+			index(classMapping, classMapping.getObfFullName(), deobfName, classMappings, deobfNames);
+		}
+		List<String> sortedNames = new ArrayList<>(classNames);
+		Collections.sort(sortedNames);
+		try (Writer writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+			writer.write("v1\t" + fromNamespace + "\t" + toNamespace + "\n");
+			for (String obfName : sortedNames) {
+				writer.write("CLASS\t" + obfName + "\t" + getDeobfName(obfName, deobfNames) + "\n");
+				ClassMapping classMapping = classMappings.get(obfName);
+				if (classMapping != null) {
+					writeMembers(writer, classMapping, obfName);
+				}
+			}
+		}
+	}
+
+	public static void write(Mappings mappings, File jar, File file, String fromNamespace, String toNamespace) throws IOException {
+		write(mappings, getClassNames(jar), file, fromNamespace, toNamespace);
+	}
+
+	public static List<String> getClassNames(File jar) throws IOException {
+		List<String> classNames = new ArrayList<>();
+		try (ZipFile zipFile = new ZipFile(jar)) {
+			Enumeration<? extends ZipEntry> entries = zipFile.entries();
+			while (entries.hasMoreElements()) {
+				String name = entries.nextElement().getName();
+				if (name.endsWith(".class")) {
+					classNames.add(name.substring(0, name.length() - ".class".length()));
+				}
+			}
+		}
+		return classNames;
+	}
+
+	//Inner class mappings only hold their simple names, so the full names are built up here
+	static void index(ClassMapping classMapping, String obfName, String deobfName, Map<String, ClassMapping> classMappings, Map<String, String> deobfNames) {
+		classMappings.put(obfName, classMapping);
+		deobfNames.put(obfName, deobfName);
+		for (ClassMapping innerClass : classMapping.innerClasses()) {
+			String innerDeobfName = innerClass.getDeobfName() != null ? innerClass.getDeobfName() : innerClass.getObfSimpleName();
+			index(innerClass, obfName + "$" + innerClass.getObfSimpleName(), deobfName + "$" + innerDeobfName, classMappings, deobfNames);
+		}
+	}
+
+	static String getDeobfName(String obfName, Map<String, String> deobfNames) {
+		String deobfName = deobfNames.get(obfName);
+		if (deobfName != null) {
+			return deobfName;
+		}
+		int innerStart = obfName.lastIndexOf('$');
+		if (innerStart == -1) {
+			return obfName;
+		}
+		return getDeobfName(obfName.substring(0, innerStart), deobfNames) + obfName.substring(innerStart);
+	}
+
+	private static void writeMembers(Writer writer, ClassMapping classMapping, String obfName) throws IOException {
+		List<FieldMapping> fields = new ArrayList<>();
+		classMapping.fields().forEach(fields::add);
+		fields.sort(Comparator.comparing(FieldMapping::getObfName).thenComparing(fieldMapping -> fieldMapping.getObfDesc().toString()));
+		for (FieldMapping fieldMapping : fields) {
+			if (fieldMapping.getDeobfName() != null) {
+				writer.write("FIELD\t" + obfName + "\t" + fieldMapping.getObfDesc() + "\t" + fieldMapping.getObfName() + "\t" + fieldMapping.getDeobfName() + "\n");
+			}
+		}
+
+		List<MethodMapping> methods = new ArrayList<>();
+		classMapping.methods().forEach(methods::add);
+		methods.sort(Comparator.comparing(MethodMapping::getObfName).thenComparing(methodMapping -> methodMapping.getObfDesc().toString()));
+		for (MethodMapping methodMapping : methods) {
+			//Constructors dont have a name
+			if (methodMapping.getDeobfName() != null) {
+				writer.write("METHOD\t" + obfName + "\t" + methodMapping.getObfDesc() + "\t" + methodMapping.getObfName() + "\t" + methodMapping.getDeobfName() + "\n");
+			}
+		}
+	}
+
+}
@@ -3,6 +3,7 @@ package cartographer;
 import com.google.common.base.Function;
 import com.google.common.base.Objects;
 import cuchaz.enigma.analysis.ParsedJar;
+import cuchaz.enigma.mapping.entry.FieldDefEntry;
 import cuchaz.enigma.mapping.entry.MethodDefEntry;
 import org.apache.commons.lang3.Validate;
 import org.checkerframework.checker.nullness.compatqual.NullableDecl;
@@ -26,6 +27,15 @@ public class Util {
 		return className + "." + methodEntry.getName() + desc;
 	}
 
+	//The key used to look up an entry in the Matches tables
+	public static Matches.MemberKey memberKey(MethodDefEntry methodEntry) {
+		return new Matches.MemberKey(methodEntry.getOwnerClassEntry().getClassName(), methodEntry.getName(), methodEntry.getDesc().toString());
+	}
+
+	public static Matches.MemberKey memberKey(FieldDefEntry fieldEntry) {
+		return new Matches.MemberKey(fieldEntry.getOwnerClassEntry().getClassName(), fieldEntry.getName(), fieldEntry.getDesc().toString());
+	}
+
 	//Wrappers around classNode and java reflection
 	public static class ClassData {
 
@@ -262,11 +272,15 @@ public class Util {
 		if (in == null || in.isEmpty()) {
 			return 0;
 		}
-		int result = 0;
-		for (int col = in.length(); col > 0; col--) {
-			result += (Math.pow(26, col - 1) * getDigit(in.charAt(in.length() - col)));
+		//Base 26, long names cap at Integer.MAX_VALUE like the old floating point sum did
+		long result = 0;
+		for (int i = 0; i < in.length(); i++) {
+			result = result * 26 + getDigit(in.charAt(i));
+			if (result > Integer.MAX_VALUE) {
+				return Integer.MAX_VALUE;
+			}
 		}
-		return result;
+		return (int) result;
 	}
 
 	//Thanks thiakil
@@ -293,16 +307,21 @@ public class Util {
 	//Thanks https://stackoverflow.com/questions/6293713/java-how-to-create-sha-1-for-a-file
 	public static String getSha1(File file) throws Exception  {
 		MessageDigest digest = MessageDigest.getInstance("SHA-1");
-		InputStream fis = new FileInputStream(file);
-		int n = 0;
-		byte[] buffer = new byte[8192];
-		while (n != -1) {
-			n = fis.read(buffer);
-			if (n > 0) {
-				digest.update(buffer, 0, n);
+		try (InputStream fis = new FileInputStream(file)) {
+			int n = 0;
+			byte[] buffer = new byte[8192];
+			while (n != -1) {
+				n = fis.read(buffer);
+				if (n > 0) {
+					digest.update(buffer, 0, n);
+				}
 			}
 		}
-		return digest.toString();
+		StringBuilder hex = new StringBuilder();
+		for (byte b : digest.digest()) {
+			hex.append(String.format("%02x", b));
+		}
+		return hex.toString();
 	}
 
 }
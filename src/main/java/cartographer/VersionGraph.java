@@ -0,0 +1,110 @@
+package cartographer;
+
+import org.apache.commons.lang3.Validate;
+
+import java.io.IOException;
+import java.util.*;
+
+//A tree of versions to map, for example a release line with snapshot branches coming off it.
+//Downloads, merges and tests run in parallel, only the mapping steps run one at a time as they all give out names from the same history.
+//The mapping steps run in the order the versions were added, so the names given out do not depend on timing.
+public class VersionGraph {
+
+	//version to the version it is updated from, null for the root
+	private final Map<String, String> parents = new LinkedHashMap<>();
+	//Versions that an update jumps over, only their matches are used
+	private final Map<String, String[]> skipped = new HashMap<>();
+	private final Set<String> tests = new LinkedHashSet<>();
+	private String root;
+	private boolean generateRoot = true;
+
+	//The first version, mapped from scratch
+	public VersionGraph root(String version) {
+		Validate.isTrue(root == null, "The graph already has a root");
+		root = version;
+		parents.put(version, null);
+		return this;
+	}
+
+	//Like root, but starts from the mappings already on disk for the version
+	public VersionGraph existingRoot(String version) {
+		root(version);
+		generateRoot = false;
+		return this;
+	}
+
+	public VersionGraph update(String source, String target, String... skippedVersions) {
+		Validate.isTrue(parents.containsKey(source), source + " has not been added");
+		Validate.isTrue(!parents.containsKey(target), target + " has already been added");
+		parents.put(target, source);
+		skipped.put(target, skippedVersions);
+		return this;
+	}
+
+	//Adds a chain of updates, each version is updated from the one before it
+	public VersionGraph chain(String source, String... targets) {
+		for (String target : targets) {
+			update(source, target);
+			source = target;
+		}
+		return this;
+	}
+
+	public VersionGraph test(String... versions) {
+		for (String version : versions) {
+			Validate.isTrue(parents.containsKey(version), version + " has not been added");
+			tests.add(version);
+		}
+		return this;
+	}
+
+	public void run(MappingPipeline pipeline, int threads) {
+		Validate.notNull(root, "The graph has no root");
+		JobScheduler scheduler = new JobScheduler();
+
+		for (String version : parents.keySet()) {
+			scheduler.add("prepare " + version, () -> prepare(version));
+		}
+
+		//The last child to be mapped from each version, its outputs can be dropped after that
+		Map<String, String> lastChild = new HashMap<>();
+		parents.forEach((version, parent) -> {
+			if (parent != null) {
+				lastChild.put(parent, version);
+			}
+		});
+
+		for (Map.Entry<String, String> entry : parents.entrySet()) {
+			String version = entry.getKey();
+			String parent = entry.getValue();
+			if (parent == null) {
+				if (generateRoot) {
+					scheduler.addSerial("map " + version, () -> pipeline.generate(version), "prepare " + version);
+				} else {
+					scheduler.addSerial("map " + version, () -> pipeline.from(version), "prepare " + version);
+				}
+			} else {
+				scheduler.addSerial("map " + version, () -> {
+					pipeline.update(parent, version, skipped.get(version));
+					if (version.equals(lastChild.get(parent))) {
+						pipeline.release(parent);
+					}
+				}, "prepare " + parent, "prepare " + version, "map " + parent);
+			}
+		}
+
+		for (String version : tests) {
+			scheduler.add("test " + version, () -> new MappingTests(version).test(), "map " + version);
+		}
+
+		scheduler.run(threads);
+	}
+
+	//Downloads the jars and libraries and merges the jars, so the mapping step only has to read them. The libraries are opened by the mapping step
+	private static void prepare(String version) throws IOException {
+		MinecraftLibProvider provider = new MinecraftLibProvider(version);
+		provider.minecraftJar();
+		provider.downloadLibraries();
+	}
+
+}
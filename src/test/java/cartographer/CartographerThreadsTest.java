@@ -0,0 +1,108 @@
+package cartographer;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.Assert.assertArrayEquals;
+
+//The analysis runs on a thread pool, the names must still come out exactly as they do on one thread
+public class CartographerThreadsTest {
+
+	private static final String[] TYPES = {"I", "J", "Ljava/lang/String;", "D"};
+
+	@Rule
+	public TemporaryFolder temp = new TemporaryFolder();
+
+	@Test
+	public void sameOutputOnAnyThreads() throws Exception {
+		File jar = temp.newFile("input.jar");
+		writeJar(jar, 300, 12, 6);
+
+		File single = run(jar, 1);
+		File multi = run(jar, 8);
+		for (String name : new String[] {"out.mappings", "out.constructors", "out.tiny", "history.txt"}) {
+			assertArrayEquals(name, Files.readAllBytes(new File(single, name).toPath()), Files.readAllBytes(new File(multi, name).toPath()));
+		}
+	}
+
+	private File run(File jar, int threads) throws IOException {
+		File dir = temp.newFolder("threads" + threads);
+		new Cartographer()
+			.setNewJar(jar)
+			.setOutputMappingsFile(new File(dir, "out.mappings"))
+			.setOutputMappingsTinyFile(new File(dir, "out.tiny"))
+			.setNewConstructorFile(new File(dir, "out.constructors"))
+			.setHistoryFile(new File(dir, "history.txt"))
+			.setMappingHistory(MappingHistory.newMappingsHistory())
+			.setLogFile(new File(dir, "log.txt"))
+			.setThreads(threads)
+			.start();
+		return dir;
+	}
+
+	//a, b, ... z, aa, ab
+	private static String obfName(int index) {
+		StringBuilder builder = new StringBuilder();
+		index++;
+		while (index > 0) {
+			index--;
+			builder.insert(0, (char) ('a' + index % 26));
+			index /= 26;
+		}
+		return builder.toString();
+	}
+
+	//Every class extends the one before it in groups of depth and implements two interfaces, so there are overrides and similar interfaces to find
+	private static void writeJar(File file, int classes, int methods, int depth) throws IOException {
+		try (ZipOutputStream zipOutputStream = new ZipOutputStream(Files.newOutputStream(file.toPath()))) {
+			for (int i = 0; i < classes; i++) {
+				String name = obfName(i);
+				boolean isInterface = i < 4;
+				String superName = isInterface || i % depth == 0 ? "java/lang/Object" : obfName(i - 1);
+				String[] interfaces = isInterface ? new String[0] : new String[] {obfName(i % 2), obfName(2 + i % 2)};
+				ClassWriter writer = new ClassWriter(0);
+				writer.visit(Opcodes.V1_8, isInterface ? Opcodes.ACC_PUBLIC | Opcodes.ACC_INTERFACE | Opcodes.ACC_ABSTRACT : Opcodes.ACC_PUBLIC | Opcodes.ACC_SUPER, name, null, superName, interfaces);
+				if (isInterface) {
+					writer.visitMethod(Opcodes.ACC_PUBLIC | Opcodes.ACC_ABSTRACT, "a", "(I)V", null, null).visitEnd();
+				} else {
+					MethodVisitor constructor = writer.visitMethod(Opcodes.ACC_PUBLIC, "<init>", "(I)V", null, null);
+					constructor.visitCode();
+					constructor.visitVarInsn(Opcodes.ALOAD, 0);
+					constructor.visitMethodInsn(Opcodes.INVOKESPECIAL, "java/lang/Object", "<init>", "()V", false);
+					constructor.visitInsn(Opcodes.RETURN);
+					constructor.visitMaxs(1, 2);
+					constructor.visitEnd();
+					writeMethod(writer, "a", "(I)V");
+					for (int j = 1; j < methods; j++) {
+						//Some names repeat down the hierarchy so they are overrides
+						writeMethod(writer, obfName(j % 3 == 0 ? j : i * methods + j), "(" + TYPES[j % TYPES.length] + ")V");
+						writer.visitField(Opcodes.ACC_PRIVATE, obfName(j), TYPES[j % TYPES.length], null, null).visitEnd();
+					}
+				}
+				writer.visitEnd();
+				zipOutputStream.putNextEntry(new ZipEntry(name + ".class"));
+				zipOutputStream.write(writer.toByteArray());
+				zipOutputStream.closeEntry();
+			}
+		}
+	}
+
+	private static void writeMethod(ClassWriter writer, String name, String desc) {
+		MethodVisitor method = writer.visitMethod(Opcodes.ACC_PUBLIC, name, desc, null, null);
+		method.visitCode();
+		method.visitInsn(Opcodes.RETURN);
+		method.visitMaxs(0, 3);
+		method.visitEnd();
+	}
+
+}
@@ -0,0 +1,66 @@
+package cartographer;
+
+import cartographer.Matches.ArgKey;
+import cartographer.Matches.MemberKey;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+//Matches over a chain of versions are composed in to one set going from the first version to the last
+public class MatchesTest {
+
+	@Rule
+	public TemporaryFolder temp = new TemporaryFolder();
+
+	@Test
+	public void composesChain() throws Exception {
+		File first = write("first.match",
+			"c\tLa;\tLb;",
+			"\tm\ta()V\tb()V",
+			"\t\tma\t0\t1",
+			"\tm\tc(I)V\td(I)V",
+			"\tf\ta;;I\tb;;I",
+			"\tf\tc;;J\td;;J",
+			//Not in the second file, so the link is broken
+			"c\tLc;\tLd;",
+			"\tm\ta()V\ta()V",
+			"\tf\ta;;I\ta;;I");
+		File second = write("second.match",
+			"c\tLb;\tLe;",
+			"\tm\tb()V\tf()V",
+			"\t\tma\t1\t2",
+			"\tf\tb;;I\tf;;I",
+			"c\tLf;\tLg;");
+
+		Matches matches = Matches.readChain(Arrays.asList(first, second));
+
+		assertEquals(1, matches.classMatches.size());
+		assertEquals("e", matches.classMatches.get("a"));
+		assertNull(matches.classMatches.get("c"));
+
+		assertEquals(1, matches.methodMatches.size());
+		assertEquals(new MemberKey("e", "f", "()V"), matches.methodMatches.get(new MemberKey("a", "a", "()V")));
+
+		assertEquals(1, matches.fieldMatches.size());
+		assertEquals(new MemberKey("e", "f", "I"), matches.fieldMatches.get(new MemberKey("a", "a", "I")));
+
+		assertEquals(1, matches.methodArgMatches.size());
+		assertEquals(new ArgKey(new MemberKey("e", "f", "()V"), 2), matches.methodArgMatches.get(new ArgKey(new MemberKey("a", "a", "()V"), 0)));
+	}
+
+	private File write(String name, String... lines) throws IOException {
+		File file = temp.newFile(name);
+		Files.write(file.toPath(), Arrays.asList(lines), StandardCharsets.UTF_8);
+		return file;
+	}
+
+}
@@ -0,0 +1,118 @@
+package cartographer;
+
+import net.fabricmc.weave.merge.JarMerger;
+import org.apache.commons.io.IOUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Opcodes;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Enumeration;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+//MinecraftJarMerger has to give the same jar as weave's JarMerger, which it replaced
+public class MinecraftJarMergerTest {
+
+	@Rule
+	public TemporaryFolder temp = new TemporaryFolder();
+
+	@Test
+	public void matchesWeave() throws Exception {
+		File client = temp.newFile("client.jar");
+		File server = temp.newFile("server.jar");
+		try (ZipOutputStream zipOutputStream = new ZipOutputStream(Files.newOutputStream(client.toPath()))) {
+			writeClass(zipOutputStream, "a", "a", "b");
+			writeClass(zipOutputStream, "b", "a");
+			writeClass(zipOutputStream, "net/minecraft/client/Main", "main");
+			//Client only and outside of net/minecraft, still has to get its side
+			writeClass(zipOutputStream, "com/mojang/blaze3d/Window", "a");
+			writeResource(zipOutputStream, "assets/lang.json", "client");
+		}
+		try (ZipOutputStream zipOutputStream = new ZipOutputStream(Files.newOutputStream(server.toPath()))) {
+			writeClass(zipOutputStream, "a", "a", "c");
+			writeClass(zipOutputStream, "b", "a");
+			writeClass(zipOutputStream, "c", "a");
+			writeClass(zipOutputStream, "net/minecraft/server/MinecraftServer", "main");
+			//A library bundled in the server jar
+			writeClass(zipOutputStream, "com/google/common/Library", "a");
+			writeResource(zipOutputStream, "assets/lang.json", "server");
+			writeResource(zipOutputStream, "server.properties", "server");
+		}
+
+		File expected = temp.newFile("weave.jar");
+		try (InputStream clientStream = Files.newInputStream(client.toPath());
+		     InputStream serverStream = Files.newInputStream(server.toPath());
+		     OutputStream outputStream = Files.newOutputStream(expected.toPath());
+		     JarMerger merger = new JarMerger(clientStream, serverStream, outputStream)) {
+			merger.merge();
+		}
+		File actual = temp.newFile("merged.jar");
+		new MinecraftJarMerger(4).merge(client, server, actual);
+
+		Map<String, byte[]> expectedEntries = read(expected);
+		Map<String, byte[]> actualEntries = read(actual);
+		assertEquals(expectedEntries.keySet(), actualEntries.keySet());
+		for (Map.Entry<String, byte[]> entry : expectedEntries.entrySet()) {
+			assertArrayEquals(entry.getKey(), entry.getValue(), actualEntries.get(entry.getKey()));
+		}
+	}
+
+	//Classes are written back through asm so only their contents are compared, not how the constant pool was laid out
+	private static Map<String, byte[]> read(File file) throws IOException {
+		Map<String, byte[]> entries = new TreeMap<>();
+		try (ZipFile zipFile = new ZipFile(file)) {
+			Enumeration<? extends ZipEntry> zipEntries = zipFile.entries();
+			while (zipEntries.hasMoreElements()) {
+				ZipEntry entry = zipEntries.nextElement();
+				if (entry.isDirectory()) {
+					continue;
+				}
+				byte[] data;
+				try (InputStream inputStream = zipFile.getInputStream(entry)) {
+					data = IOUtils.toByteArray(inputStream);
+				}
+				if (entry.getName().endsWith(".class")) {
+					ClassWriter writer = new ClassWriter(0);
+					new ClassReader(data).accept(writer, 0);
+					data = writer.toByteArray();
+				}
+				entries.put(entry.getName(), data);
+			}
+		}
+		return entries;
+	}
+
+	private static void writeClass(ZipOutputStream zipOutputStream, String name, String... methods) throws IOException {
+		ClassWriter writer = new ClassWriter(0);
+		writer.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC | Opcodes.ACC_SUPER | Opcodes.ACC_ABSTRACT, name, null, "java/lang/Object", null);
+		for (String method : methods) {
+			writer.visitMethod(Opcodes.ACC_PUBLIC | Opcodes.ACC_ABSTRACT, method, "()V", null, null).visitEnd();
+		}
+		writer.visitEnd();
+		zipOutputStream.putNextEntry(new ZipEntry(name + ".class"));
+		zipOutputStream.write(writer.toByteArray());
+		zipOutputStream.closeEntry();
+	}
+
+	private static void writeResource(ZipOutputStream zipOutputStream, String name, String contents) throws IOException {
+		zipOutputStream.putNextEntry(new ZipEntry(name));
+		zipOutputStream.write(contents.getBytes(StandardCharsets.UTF_8));
+		zipOutputStream.closeEntry();
+	}
+
+}
@@ -0,0 +1,92 @@
+package cartographer;
+
+import cuchaz.enigma.mapping.*;
+import net.fabricmc.weave.CommandTinyify;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Opcodes;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.Assert.assertEquals;
+
+//TinyWriter has to give the same mappings as weave's tinyify, which it replaced
+public class TinyWriterTest {
+
+	@Rule
+	public TemporaryFolder temp = new TemporaryFolder();
+
+	@Test
+	public void matchesTinyify() throws Exception {
+		File jar = temp.newFile("input.jar");
+		writeJar(jar, "a", "a$1", "a$b", "a$b$1", "b", "net/minecraft/client/Main");
+
+		Mappings mappings = new Mappings();
+		ClassMapping a = new ClassMapping("a", "net/minecraft/class_1");
+		a.addFieldMapping(new FieldMapping("a", new TypeDescriptor("I"), "field_1", Mappings.EntryModifier.UNCHANGED));
+		a.addMethodMapping(new MethodMapping("a", new MethodDescriptor("()V"), "method_1", Mappings.EntryModifier.UNCHANGED));
+		a.addMethodMapping(new MethodMapping("<init>", new MethodDescriptor("()V")));
+		//Members without a deobf name, TinyWriter leaves them out so they have to match tinyify
+		a.addFieldMapping(new FieldMapping("b", new TypeDescriptor("J"), null, Mappings.EntryModifier.UNCHANGED));
+		MethodMapping unnamed = new MethodMapping("b", new MethodDescriptor("(J)V"));
+		unnamed.addArgumentMapping(new LocalVariableMapping(0, "value"));
+		a.addMethodMapping(unnamed);
+		ClassMapping inner = new ClassMapping("a$b", "class_2");
+		inner.addMethodMapping(new MethodMapping("a", new MethodDescriptor("(I)V"), "method_2", Mappings.EntryModifier.UNCHANGED));
+		a.addInnerClassMapping(inner);
+		mappings.addClassMapping(a);
+		mappings.addClassMapping(new ClassMapping("b", "net/minecraft/class_3"));
+		mappings.addClassMapping(new ClassMapping("net/minecraft/client/Main", "net/minecraft/client/Main"));
+
+		File mappingsFile = temp.newFile("input.mappings");
+		new MappingsEnigmaWriter().write(mappingsFile, mappings, false);
+		File expected = temp.newFile("tinyify.tiny");
+		new CommandTinyify().run(new String[] {jar.getAbsolutePath(), mappingsFile.getAbsolutePath(), expected.getAbsolutePath(), "mojang", "intermediary"});
+
+		File actual = temp.newFile("writer.tiny");
+		TinyWriter.write(mappings, jar, actual, "mojang", "intermediary");
+
+		//The order of the lines does not matter to tiny
+		assertEquals(readSorted(expected), readSorted(actual));
+	}
+
+	private static List<String> readSorted(File file) throws IOException {
+		List<String> lines = new ArrayList<>(Files.readAllLines(file.toPath(), StandardCharsets.UTF_8));
+		String header = lines.remove(0);
+		Collections.sort(lines);
+		lines.add(0, header);
+		return lines;
+	}
+
+	private static void writeJar(File file, String... classNames) throws IOException {
+		try (ZipOutputStream zipOutputStream = new ZipOutputStream(Files.newOutputStream(file.toPath()))) {
+			for (String name : classNames) {
+				ClassWriter writer = new ClassWriter(0);
+				writer.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC | Opcodes.ACC_SUPER | Opcodes.ACC_ABSTRACT, name, null, "java/lang/Object", null);
+				if (name.equals("a")) {
+					writer.visitField(Opcodes.ACC_PRIVATE, "a", "I", null, null).visitEnd();
+					writer.visitMethod(Opcodes.ACC_PUBLIC | Opcodes.ACC_ABSTRACT, "a", "()V", null, null).visitEnd();
+					writer.visitField(Opcodes.ACC_PRIVATE, "b", "J", null, null).visitEnd();
+					writer.visitMethod(Opcodes.ACC_PUBLIC | Opcodes.ACC_ABSTRACT, "b", "(J)V", null, null).visitEnd();
+				} else if (name.equals("a$b")) {
+					writer.visitMethod(Opcodes.ACC_PUBLIC | Opcodes.ACC_ABSTRACT, "a", "(I)V", null, null).visitEnd();
+				}
+				writer.visitEnd();
+				zipOutputStream.putNextEntry(new ZipEntry(name + ".class"));
+				zipOutputStream.write(writer.toByteArray());
+				zipOutputStream.closeEntry();
+			}
+		}
+	}
+
+}